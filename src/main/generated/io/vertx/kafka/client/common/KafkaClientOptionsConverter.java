@@ -30,6 +30,21 @@ public class KafkaClientOptionsConverter {
             obj.setConfig(map);
           }
           break;
+        case "deserializationParallelism":
+          if (member.getValue() instanceof Number) {
+            obj.setDeserializationParallelism(((Number)member.getValue()).intValue());
+          }
+          break;
+        case "lazyDeserialization":
+          if (member.getValue() instanceof Boolean) {
+            obj.setLazyDeserialization((Boolean)member.getValue());
+          }
+          break;
+        case "sharedConsumerBroadcast":
+          if (member.getValue() instanceof Boolean) {
+            obj.setSharedConsumerBroadcast((Boolean)member.getValue());
+          }
+          break;
         case "tracePeerAddress":
           if (member.getValue() instanceof String) {
             obj.setTracePeerAddress((String)member.getValue());
@@ -40,6 +55,21 @@ public class KafkaClientOptionsConverter {
             obj.setTracingPolicy(io.vertx.core.tracing.TracingPolicy.valueOf((String)member.getValue()));
           }
           break;
+        case "useVirtualThreads":
+          if (member.getValue() instanceof Boolean) {
+            obj.setUseVirtualThreads((Boolean)member.getValue());
+          }
+          break;
+        case "workerPoolName":
+          if (member.getValue() instanceof String) {
+            obj.setWorkerPoolName((String)member.getValue());
+          }
+          break;
+        case "workerPoolSize":
+          if (member.getValue() instanceof Number) {
+            obj.setWorkerPoolSize(((Number)member.getValue()).intValue());
+          }
+          break;
       }
     }
   }
@@ -54,11 +84,19 @@ public class KafkaClientOptionsConverter {
       obj.getConfig().forEach((key, value) -> map.put(key, value));
       json.put("config", map);
     }
+    json.put("deserializationParallelism", obj.getDeserializationParallelism());
+    json.put("lazyDeserialization", obj.isLazyDeserialization());
+    json.put("sharedConsumerBroadcast", obj.isSharedConsumerBroadcast());
     if (obj.getTracePeerAddress() != null) {
       json.put("tracePeerAddress", obj.getTracePeerAddress());
     }
     if (obj.getTracingPolicy() != null) {
       json.put("tracingPolicy", obj.getTracingPolicy().name());
     }
+    json.put("useVirtualThreads", obj.isUseVirtualThreads());
+    if (obj.getWorkerPoolName() != null) {
+      json.put("workerPoolName", obj.getWorkerPoolName());
+    }
+    json.put("workerPoolSize", obj.getWorkerPoolSize());
   }
 }
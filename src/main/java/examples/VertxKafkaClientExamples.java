@@ -16,11 +16,15 @@
 
 package examples;
 
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.docgen.Source;
+import io.vertx.kafka.client.common.KafkaClientOptions;
+import io.vertx.kafka.client.producer.KafkaHeader;
 import io.vertx.kafka.client.consumer.KafkaConsumerRecord;
 import io.vertx.kafka.client.consumer.KafkaConsumerRecords;
 import io.vertx.kafka.client.consumer.OffsetAndTimestamp;
@@ -35,6 +39,7 @@ import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -513,6 +518,76 @@ public class VertxKafkaClientExamples {
   }
 
 
+  public void exampleConsumerFilter(KafkaConsumer<String, String> consumer) {
+
+    // only the records with an "eu" region header reach the handler
+    consumer.filter(record -> {
+      KafkaHeader region = record.lastHeader("region");
+      return region != null && region.value().toString().equals("eu");
+    });
+
+    consumer.handler(record -> {
+      System.out.println("Processing key=" + record.key() + ",value=" + record.value() +
+        ",partition=" + record.partition() + ",offset=" + record.offset());
+    });
+  }
+
+  public void exampleConsumerDispatch(KafkaConsumer<String, String> consumer) {
+
+    // the records of a key are processed in order, on one of 8 lanes
+    consumer.dispatchHandler(8, true, record -> {
+      System.out.println("Processing key=" + record.key() + ",value=" + record.value() +
+        ",partition=" + record.partition() + ",offset=" + record.offset());
+    });
+
+    // commit the offsets of the records processed so far by every lane
+    consumer.commit();
+  }
+
+  public void exampleConsumerAsyncHandler(Vertx vertx, KafkaConsumer<String, String> consumer) {
+
+    // up to 100 records are processed at the same time
+    consumer.asyncHandler(100, record -> {
+      Promise<Void> promise = Promise.promise();
+      vertx.setTimer(10, id -> {
+        System.out.println("Processed key=" + record.key() + ",value=" + record.value());
+        promise.complete();
+      });
+      return promise.future();
+    });
+
+    // commit the offsets of the records processed every second
+    vertx.setPeriodic(1000, id -> consumer.commit());
+  }
+
+  public void exampleConsumerWorkerPool(Vertx vertx) {
+    KafkaClientOptions options = new KafkaClientOptions()
+      .setConfig(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092")
+      .setConfig(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class)
+      .setConfig(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class)
+      .setConfig(ConsumerConfig.GROUP_ID_CONFIG, "my_group")
+      .setWorkerPoolName("my-consumer-pool")
+      .setWorkerPoolSize(4);
+
+    // all the consumers created with these options share the same 4 threads
+    for (int i = 0; i < 100; i++) {
+      KafkaConsumer<String, String> consumer = KafkaConsumer.create(vertx, options);
+      consumer.pollTimeout(Duration.ofMillis(50));
+    }
+  }
+
+  public void exampleSharedConsumer(Vertx vertx, Map<String, String> config) {
+    // Create a shared consumer identified by 'the-consumer', e.g. in each instance of a verticle
+    KafkaConsumer<String, String> consumer = KafkaConsumer.createShared(vertx, "the-consumer", config);
+
+    // this instance receives the records of its share of the partitions
+    consumer.handler(record -> {
+      System.out.println("Processing key=" + record.key() + ",value=" + record.value() +
+        ",partition=" + record.partition() + ",offset=" + record.offset());
+    });
+    consumer.subscribe("test");
+  }
+
   public void exampleConsumerClose(KafkaConsumer<String, String> consumer) {
     consumer
       .close()
@@ -590,6 +665,27 @@ public class VertxKafkaClientExamples {
     }
   }
 
+  public void exampleProducerSendBatch(KafkaProducer<String, String> producer) {
+    List<KafkaProducerRecord<String, String>> records = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      records.add(KafkaProducerRecord.create("test", "message_" + i));
+    }
+
+    CompositeFuture result = producer.sendBatch(records);
+    result.onComplete(ar -> {
+      // per record outcome
+      for (int i = 0; i < result.size(); i++) {
+        if (result.succeeded(i)) {
+          RecordMetadata recordMetadata = result.resultAt(i);
+          System.out.println("Message " + i + " written on partition=" + recordMetadata.getPartition() +
+            ", offset=" + recordMetadata.getOffset());
+        } else {
+          System.out.println("Message " + i + " failed: " + result.cause(i));
+        }
+      }
+    });
+  }
+
   public void exampleSharedProducer(Vertx vertx, Map<String, String> config) {
     // Create a shared producer identified by 'the-producer'
     KafkaProducer<String, String> producer1 = KafkaProducer.createShared(vertx, "the-producer", config);
@@ -41,9 +41,51 @@ public class KafkaClientOptions {
    */
   public static final TracingPolicy DEFAULT_TRACING_POLICY = TracingPolicy.PROPAGATE;
 
+  /**
+   * Default worker pool name is null, each consumer uses its own thread
+   */
+  public static final String DEFAULT_WORKER_POOL_NAME = null;
+
+  /**
+   * Default worker pool size = 20
+   */
+  public static final int DEFAULT_WORKER_POOL_SIZE = 20;
+
+  /**
+   * Default use of virtual threads = false
+   */
+  public static final boolean DEFAULT_USE_VIRTUAL_THREADS = false;
+
+  /**
+   * Default lazy deserialization = false
+   */
+  public static final boolean DEFAULT_LAZY_DESERIALIZATION = false;
+
+  /**
+   * Default deserialization parallelism = 0, the records are deserialized by the native consumer
+   */
+  public static final int DEFAULT_DESERIALIZATION_PARALLELISM = 0;
+
+  /**
+   * Default shared consumer broadcast = false, the partitions are spread across the instances
+   */
+  public static final boolean DEFAULT_SHARED_CONSUMER_BROADCAST = false;
+
+  /**
+   * The config key setting the shared consumer broadcast when a shared consumer is created from a config map or
+   * properties, e.g. {@code "true"}, the key is not passed to the Kafka consumer
+   */
+  public static final String SHARED_CONSUMER_BROADCAST_CONFIG = "vertx.shared.consumer.broadcast";
+
   private Map<String, Object> config;
   private String tracePeerAddress = DEFAULT_TRACE_PEER_ADDRESS;
   private TracingPolicy tracingPolicy = DEFAULT_TRACING_POLICY;
+  private String workerPoolName = DEFAULT_WORKER_POOL_NAME;
+  private int workerPoolSize = DEFAULT_WORKER_POOL_SIZE;
+  private boolean useVirtualThreads = DEFAULT_USE_VIRTUAL_THREADS;
+  private boolean lazyDeserialization = DEFAULT_LAZY_DESERIALIZATION;
+  private int deserializationParallelism = DEFAULT_DESERIALIZATION_PARALLELISM;
+  private boolean sharedConsumerBroadcast = DEFAULT_SHARED_CONSUMER_BROADCAST;
 
   public KafkaClientOptions() {
   }
@@ -144,6 +186,148 @@ public class KafkaClientOptions {
     return this;
   }
 
+  /**
+   * @return the name of the worker pool shared by consumers
+   */
+  public String getWorkerPoolName() {
+    return workerPoolName;
+  }
+
+  /**
+   * Set the name of a worker pool shared by the consumers of a Vert.x instance created with the same name.
+   * <p>
+   * By default each consumer uses its own thread to interact with the native Kafka consumer. When a name is set,
+   * the consumers run their blocking calls on a bounded pool of daemon threads instead, each consumer still executes
+   * a single call at a time. A consumer polling without records gives its thread back as soon as another consumer of
+   * the pool needs one, so more consumers than threads can share a pool.
+   *
+   * @param workerPoolName the worker pool name, or {@code null} to use a thread per consumer
+   * @return a reference to this, so the API can be used fluently
+   */
+  public KafkaClientOptions setWorkerPoolName(String workerPoolName) {
+    this.workerPoolName = workerPoolName;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of threads of the worker pool shared by consumers
+   */
+  public int getWorkerPoolSize() {
+    return workerPoolSize;
+  }
+
+  /**
+   * Set the maximum number of threads of the worker pool shared by consumers. The pool is created by the first
+   * consumer using the {@link #setWorkerPoolName(String) worker pool name}, starting a consumer with the same name and
+   * a different size fails with an {@link IllegalStateException}.
+   *
+   * @param workerPoolSize the maximum number of threads
+   * @return a reference to this, so the API can be used fluently
+   */
+  public KafkaClientOptions setWorkerPoolSize(int workerPoolSize) {
+    if (workerPoolSize < 1) {
+      throw new IllegalArgumentException("workerPoolSize must be > 0");
+    }
+    this.workerPoolSize = workerPoolSize;
+    return this;
+  }
+
+  /**
+   * @return whether the blocking calls to the native Kafka client are executed on virtual threads
+   */
+  public boolean isUseVirtualThreads() {
+    return useVirtualThreads;
+  }
+
+  /**
+   * Set whether the blocking calls to the native Kafka client are executed on virtual threads.
+   * <p>
+   * A consumer then polls on virtual threads instead of its own thread or a {@link #setWorkerPoolName(String) worker pool},
+   * and a producer sends, flushes and runs transactions on virtual threads instead of the Vert.x worker pool.
+   * The calls of a client are still executed one at a time and in order. This requires a JDK supporting virtual threads,
+   * creating the client fails with an {@link IllegalStateException} otherwise.
+   *
+   * @param useVirtualThreads {@code true} to use virtual threads
+   * @return a reference to this, so the API can be used fluently
+   */
+  public KafkaClientOptions setUseVirtualThreads(boolean useVirtualThreads) {
+    this.useVirtualThreads = useVirtualThreads;
+    return this;
+  }
+
+  /**
+   * @return whether the consumer records are deserialized when their key or value is accessed
+   */
+  public boolean isLazyDeserialization() {
+    return lazyDeserialization;
+  }
+
+  /**
+   * Set whether the consumer records are deserialized when their key or value is first accessed.
+   * <p>
+   * By default the native Kafka consumer deserializes every record when it is polled. When enabled, the consumer
+   * polls the raw bytes and the records run the configured deserializer on the first access to their key or value,
+   * so the records filtered out without reading them are never deserialized. A deserialization failure is then
+   * thrown by the access to the key or value instead of the poll. This applies to the consumers created with
+   * these options, not to the consumers created from a native Kafka consumer.
+   *
+   * @param lazyDeserialization {@code true} to deserialize the records lazily
+   * @return a reference to this, so the API can be used fluently
+   */
+  public KafkaClientOptions setLazyDeserialization(boolean lazyDeserialization) {
+    this.lazyDeserialization = lazyDeserialization;
+    return this;
+  }
+
+  /**
+   * @return the number of threads deserializing the polled records in parallel
+   */
+  public int getDeserializationParallelism() {
+    return deserializationParallelism;
+  }
+
+  /**
+   * Set the number of threads deserializing the polled records of a consumer in parallel.
+   * <p>
+   * By default the native Kafka consumer deserializes the records on the consumer thread when they are polled. When set,
+   * the consumer polls the raw bytes and large batches are deserialized in parallel on up to this number of threads of
+   * a fork-join pool shared by all the consumers, with a thread per core, the order of the records within a partition
+   * is kept. The deserializers must then be thread safe. This does not apply
+   * with {@link #setLazyDeserialization(boolean) lazy deserialization}, nor to the consumers created from a native Kafka
+   * consumer.
+   *
+   * @param deserializationParallelism the number of threads, 0 to let the native consumer deserialize the records
+   * @return a reference to this, so the API can be used fluently
+   */
+  public KafkaClientOptions setDeserializationParallelism(int deserializationParallelism) {
+    if (deserializationParallelism < 0) {
+      throw new IllegalArgumentException("deserializationParallelism must be >= 0");
+    }
+    this.deserializationParallelism = deserializationParallelism;
+    return this;
+  }
+
+  /**
+   * @return whether a shared consumer delivers every record to each of its instances
+   */
+  public boolean isSharedConsumerBroadcast() {
+    return sharedConsumerBroadcast;
+  }
+
+  /**
+   * Set whether a consumer created with {@code KafkaConsumer#createShared} delivers every record to each of its
+   * instances. By default the partitions are spread across the instances having a handler, each record being
+   * delivered to a single instance. A shared consumer created from a config map or properties reads this setting from
+   * the {@link #SHARED_CONSUMER_BROADCAST_CONFIG} key.
+   *
+   * @param sharedConsumerBroadcast {@code true} to deliver every record to each instance
+   * @return a reference to this, so the API can be used fluently
+   */
+  public KafkaClientOptions setSharedConsumerBroadcast(boolean sharedConsumerBroadcast) {
+    this.sharedConsumerBroadcast = sharedConsumerBroadcast;
+    return this;
+  }
+
   public JsonObject toJson() {
     return new JsonObject();
   }
@@ -16,7 +16,11 @@
 
 package io.vertx.kafka.client.common.impl;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.buffer.UnpooledHeapByteBuf;
 import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.kafka.admin.*;
 import io.vertx.kafka.client.common.*;
 import io.vertx.kafka.client.common.acl.*;
@@ -471,4 +475,37 @@ public class Helper {
       replicaLogDirInfo.getFutureReplicaOffsetLag()
     );
   }
+
+  /**
+   * Get the bytes of a buffer, the backing array is returned without copy when the buffer is a heap buffer
+   * using its whole array, a copy is returned otherwise.
+   */
+  public static byte[] toBytes(Buffer buffer) {
+    ByteBuf byteBuf = buffer.getByteBuf();
+    if (byteBuf.hasArray() && byteBuf.arrayOffset() == 0 && byteBuf.readerIndex() == 0) {
+      byte[] array = byteBuf.array();
+      if (array.length == byteBuf.readableBytes()) {
+        return array;
+      }
+    }
+    return buffer.getBytes();
+  }
+
+  /**
+   * Wrap bytes in a buffer without copy, the buffer can still be appended to.
+   */
+  public static Buffer wrap(byte[] bytes) {
+    return Buffer.buffer(new WrappedHeapByteBuf(bytes));
+  }
+
+  /**
+   * A heap buffer using an existing array, unlike {@code Unpooled.wrappedBuffer} its capacity is not bounded
+   * to the array length.
+   */
+  private static class WrappedHeapByteBuf extends UnpooledHeapByteBuf {
+
+    WrappedHeapByteBuf(byte[] bytes) {
+      super(UnpooledByteBufAllocator.DEFAULT, bytes, Integer.MAX_VALUE);
+    }
+  }
 }
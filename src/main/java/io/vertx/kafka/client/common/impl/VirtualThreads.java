@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.common.impl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the virtual threads of the running JDK.
+ * <p>
+ * The client is compiled for Java 8, so the virtual threads API is looked up by reflection.
+ */
+public class VirtualThreads {
+
+  private static final ExecutorService EXECUTOR = createExecutor();
+
+  private VirtualThreads() {
+  }
+
+  private static ExecutorService createExecutor() {
+    try {
+      Method ofVirtual = Thread.class.getMethod("ofVirtual");
+      Object builder = ofVirtual.invoke(null);
+      Class<?> builderClass = ofVirtual.getReturnType();
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "vert.x-kafka-virtual-thread-", 0L);
+      ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+    } catch (Exception e) {
+      // not available or preview feature not enabled
+      return null;
+    }
+  }
+
+  /**
+   * @return whether the running JDK supports virtual threads
+   */
+  public static boolean isSupported() {
+    return EXECUTOR != null;
+  }
+
+  /**
+   * Create an executor running its tasks one at a time, in submission order, each task on a new virtual thread.
+   *
+   * @return the executor
+   * @throws IllegalStateException when the running JDK does not support virtual threads
+   */
+  public static ExecutorService createWorker() {
+    if (EXECUTOR == null) {
+      throw new IllegalStateException("Virtual threads are not supported by this JDK");
+    }
+    return new SerialExecutor(EXECUTOR);
+  }
+}
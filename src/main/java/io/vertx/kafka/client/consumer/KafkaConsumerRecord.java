@@ -17,6 +17,7 @@
 package io.vertx.kafka.client.consumer;
 
 import io.vertx.codegen.annotations.GenIgnore;
+import io.vertx.codegen.annotations.Nullable;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.kafka.client.producer.KafkaHeader;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
@@ -84,6 +85,22 @@ public interface KafkaConsumerRecord<K, V> {
    */
   List<KafkaHeader> headers();
 
+  /**
+   * Get the last header of this record with the given key, without converting the other headers.
+   * The header value wraps the bytes of the native header and is not copied.
+   *
+   * @param key the header key
+   * @return the header or {@code null} when this record has no header with this key
+   */
+  @Nullable
+  KafkaHeader lastHeader(String key);
+
+  /**
+   * @param key the header key
+   * @return the list of the headers of this record with the given key, in order
+   */
+  List<KafkaHeader> headers(String key);
+
   /**
    * @return  the native Kafka consumer record with backed information
    */
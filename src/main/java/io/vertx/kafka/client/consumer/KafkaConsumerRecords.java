@@ -19,6 +19,7 @@ import org.apache.kafka.clients.consumer.ConsumerRecords;
 
 import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.Handler;
 
 /**
  * Vert.x Kafka consumer records
@@ -39,6 +40,50 @@ public interface KafkaConsumerRecords<K, V> {
    * @throws IndexOutOfBoundsException if index <0 or index>={@link #size()}
    */
   KafkaConsumerRecord<K, V> recordAt(int index);
+
+  /**
+   * Get the topic of the record at the given index, without creating the record
+   * @param index the index of the record
+   * @throws IndexOutOfBoundsException if index <0 or index>={@link #size()}
+   */
+  String topicAt(int index);
+
+  /**
+   * Get the partition of the record at the given index, without creating the record
+   * @param index the index of the record
+   * @throws IndexOutOfBoundsException if index <0 or index>={@link #size()}
+   */
+  int partitionAt(int index);
+
+  /**
+   * Get the offset of the record at the given index, without creating the record
+   * @param index the index of the record
+   * @throws IndexOutOfBoundsException if index <0 or index>={@link #size()}
+   */
+  long offsetAt(int index);
+
+  /**
+   * Get the key of the record at the given index, without creating the record
+   * @param index the index of the record
+   * @throws IndexOutOfBoundsException if index <0 or index>={@link #size()}
+   */
+  K keyAt(int index);
+
+  /**
+   * Get the value of the record at the given index, without creating the record
+   * @param index the index of the record
+   * @throws IndexOutOfBoundsException if index <0 or index>={@link #size()}
+   */
+  V valueAt(int index);
+
+  /**
+   * Call the handler for each record of this batch, in order.
+   * <p>
+   * The same record instance is reused for all the records, it is only valid during the call of the handler and must
+   * not be retained, use {@link #recordAt(int)} to get a record which can be retained.
+   * @param handler the handler called for each record
+   */
+  void forEach(Handler<KafkaConsumerRecord<K, V>> handler);
   
   /**
    * @return  the native Kafka consumer records with backed information
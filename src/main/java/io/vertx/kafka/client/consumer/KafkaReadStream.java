@@ -23,6 +23,7 @@ import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.streams.ReadStream;
 import io.vertx.kafka.client.common.KafkaClientOptions;
+import io.vertx.kafka.client.consumer.impl.DeserializingConsumer;
 import io.vertx.kafka.client.consumer.impl.KafkaReadStreamImpl;
 import io.vertx.kafka.client.serialization.VertxSerdes;
 import org.apache.kafka.clients.consumer.Consumer;
@@ -40,6 +41,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 /**
@@ -185,7 +188,7 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
     if (options.getConfig() != null) {
       config.putAll(options.getConfig());
     }
-    return new KafkaReadStreamImpl<>(vertx, new org.apache.kafka.clients.consumer.KafkaConsumer<>(config), options);
+    return new KafkaReadStreamImpl<>(vertx, DeserializingConsumer.create(config, null, null, options), options);
   }
 
   /**
@@ -219,7 +222,7 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
     }
     return new KafkaReadStreamImpl<>(
       vertx,
-      new org.apache.kafka.clients.consumer.KafkaConsumer<>(config, keyDeserializer, valueDeserializer),
+      DeserializingConsumer.create(config, keyDeserializer, valueDeserializer, options),
       options);
   }
 
@@ -234,6 +237,18 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
     return new KafkaReadStreamImpl<>(vertx, consumer, new KafkaClientOptions());
   }
 
+  /**
+   * Create a new KafkaReadStream instance
+   *
+   * @param vertx Vert.x instance to use
+   * @param consumer  native Kafka consumer instance
+   * @param options  Kafka client options
+   * @return an instance of the KafkaReadStream
+   */
+  static <K, V> KafkaReadStream<K, V> create(Vertx vertx, Consumer<K, V> consumer, KafkaClientOptions options) {
+    return new KafkaReadStreamImpl<>(vertx, consumer, options);
+  }
+
   /**
    * Get the last committed offset for the given partition (whether the commit happened by this process or another).
    *
@@ -681,6 +696,10 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
    * returned from Kafka. Batch handlers need to take care not to block
    * the event loop when dealing with large batches. It is better to process
    * records individually using the {@link #handler(Handler) record handler}.
+   * <p>
+   * When no record handler is set, the batches are delivered according to the demand of the stream: each batch
+   * consumes one unit of demand, e.g. with {@link #fetch(long) fetch(1)}, and no records are fetched from Kafka
+   * while the stream is paused.
    *
    * @param handler handler called each time Kafka returns a batch of records.
    * @return current KafkaReadStream instance.
@@ -699,6 +718,161 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
    */
   KafkaReadStream<K, V> pollTimeout(Duration timeout);
 
+  /**
+   * Sets the maximum number of records delivered to the {@linkplain #handler(Handler) record handler}
+   * before the stream yields the context to other tasks. Defaults to 10.
+   *
+   * @param records the maximum number of records delivered per context tick, must be positive
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> recordsPerTick(int records);
+
+  /**
+   * Sets the maximum time spent delivering records to the {@linkplain #handler(Handler) record handler}
+   * before the stream yields the context to other tasks. The bound applies together with {@link #recordsPerTick(int)}.
+   * Defaults to {@code null}, i.e. only the number of records is bounded.
+   *
+   * @param duration the maximum time spent per context tick, {@code null} or zero to disable
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> tickDuration(Duration duration);
+
+  /**
+   * When enabled together with a {@link #tickDuration(Duration)}, the number of records delivered per context tick
+   * is computed from the measured record handler latency so that a tick lasts about the tick duration, instead
+   * of reading the clock after each record. The {@link #recordsPerTick(int)} value is used until the first measure.
+   *
+   * @param adaptive whether the number of records per tick adapts to the record handler latency
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> adaptiveTick(boolean adaptive);
+
+  /**
+   * Sets the maximum number of records the stream keeps fetched ahead of the {@linkplain #handler(Handler) record handler}.
+   * When set, the next poll is executed on the consumer thread while the previous batch is still being delivered,
+   * until that many records are buffered. Defaults to 0, which means the next poll happens only once the previous
+   * batch has been delivered.
+   *
+   * @param records the maximum number of records buffered ahead of the record handler, 0 disables prefetching
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> prefetchRecords(int records);
+
+  /**
+   * Like {@link #prefetchRecords(int)} but bounds the prefetched records by their serialized key and value size.
+   * When both bounds are set, prefetching stops as soon as one of them is reached.
+   *
+   * @param bytes the maximum number of bytes buffered ahead of the record handler, 0 disables prefetching
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> prefetchBytes(long bytes);
+
+  /**
+   * Sets watermarks pausing the partitions which have too many records buffered ahead of the
+   * {@linkplain #handler(Handler) record handler}.
+   * <p>
+   * A partition with {@code high} buffered records or more is {@linkplain #pause(Set) paused} on the native consumer
+   * and resumed once no more than {@code low} of its records are buffered, so the other partitions keep being fetched
+   * while a hot partition catches up. This is mostly useful along with {@link #prefetchRecords(int) prefetching}.
+   * The partitions paused explicitly should not be paused by the watermarks as well. Defaults to 0, which disables
+   * the watermarks.
+   *
+   * @param high the number of buffered records pausing a partition, 0 disables the watermarks
+   * @param low the number of buffered records resuming a paused partition, lower than {@code high}
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> partitionWatermarks(int high, int low);
+
+  /**
+   * Sets whether the offsets of the processed records of the revoked partitions are committed synchronously when a
+   * rebalance revokes partitions, before they are assigned to another member of the group.
+   * <p>
+   * When partitions are revoked, the records of these partitions buffered by the consumer are dropped, the records
+   * of the other partitions keep being delivered. When enabled, the offset of the first dropped record is committed,
+   * or the offset computed from the completed records with {@link #dispatchHandler} and {@link #asyncHandler}, so the
+   * new owner resumes right after the processed records. The {@code enable.auto.commit} configuration should then be
+   * disabled. Defaults to {@code false}.
+   * <p>
+   * The rebalance waits up to 10 seconds for the event loop to drop the buffered records, blocking the consumer
+   * thread. Past this delay a {@link java.util.concurrent.TimeoutException} is reported to the
+   * {@link #exceptionHandler(Handler) exception handler}, the buffered records may still be delivered after the
+   * partitions are handed over, and the committed offsets are computed from the completed records, or from the
+   * positions of the consumer.
+   *
+   * @param enabled whether the offsets of the revoked partitions are committed
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> commitOnRevoke(boolean enabled);
+
+  /**
+   * Sets whether {@link #commit()} uses the asynchronous commit of the native Kafka consumer. When enabled, commit
+   * requests made close together are coalesced into a single request carrying the highest offset of each partition,
+   * sent with {@code commitAsync} between two polls, so committing does not stall the fetching of records for a
+   * round trip to the broker. Each commit future is completed when the broker acknowledges the request. Defaults to
+   * {@code false}, i.e. each commit is executed with {@code commitSync}.
+   *
+   * @param enabled whether commits are asynchronous and coalesced
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> asyncCommit(boolean enabled);
+
+  /**
+   * Set the handler processing the records concurrently on {@code lanes} lanes executed on the Vert.x worker pool,
+   * replacing the {@link #handler(Handler) record handler}.
+   * <p>
+   * Each record is routed to a lane by its partition or, when {@code byKey} is {@code true}, by the hash of its key,
+   * and each lane processes its records one at a time in order, so the order of the records is preserved within a
+   * partition or a key while a single consumer uses several cores. The handler is called on a worker thread and can
+   * block. No more records are delivered while the lanes are lagging behind, this does not change the
+   * {@link #demand()} set with {@link #pause()}, {@link #resume()} and {@link #fetch(long)}.
+   * <p>
+   * {@link #commit()} then only commits the offsets of the records processed by every lane, so the
+   * {@code enable.auto.commit} configuration should be disabled. A record whose handler throws is reported to the
+   * {@link #exceptionHandler(Handler) exception handler} and the next records keep being processed, but its partition
+   * is not committed past it anymore, so the record is consumed again after a restart or a rebalance. Seeking the
+   * partition, e.g. to retry the record or to skip it, clears the failure.
+   *
+   * @param lanes the number of lanes
+   * @param byKey whether the records are routed by key rather than by partition
+   * @param handler the handler called on the lanes
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> dispatchHandler(int lanes, boolean byKey, Handler<ConsumerRecord<K, V>> handler);
+
+  /**
+   * Set a handler processing the records asynchronously, replacing the {@link #handler(Handler) record handler}.
+   * <p>
+   * The handler is called on the event loop for each record and returns a future completed when the record is
+   * processed. Up to {@code maxInFlight} records are processed concurrently, no more records are delivered when this
+   * limit is reached, this does not change the {@link #demand()}. The completions are tracked per partition and
+   * {@link #commit()} commits the highest offset below which every record has been processed, which gives an
+   * at-least-once processing. Like with {@link #dispatchHandler(int, boolean, Handler)}, a failed future, or a handler
+   * throwing, is reported to the {@link #exceptionHandler(Handler) exception handler} and the partition is not
+   * committed past the record anymore, until the partition is sought.
+   *
+   * @param maxInFlight the maximum number of records processed concurrently
+   * @param handler the handler returning a future completed when the record is processed
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> asyncHandler(int maxInFlight, Function<ConsumerRecord<K, V>, Future<Void>> handler);
+
+  /**
+   * Set a predicate selecting the records delivered to the handlers.
+   * <p>
+   * The predicate is evaluated on the consumer thread as soon as the records are polled, so the rejected records
+   * never reach the event loop. It must not block and must be thread safe. Testing the headers of the records,
+   * along with the {@link KafkaClientOptions#setLazyDeserialization(boolean) lazy deserialization}, avoids the
+   * deserialization of the rejected records.
+   * <p>
+   * The offsets of the rejected records count as processed: {@link #commit()} commits past them once the records
+   * before them are processed. A record whose predicate throws, e.g. failing a lazy deserialization, is rejected and
+   * the failure is reported to the {@link #exceptionHandler(Handler) exception handler}.
+   *
+   * @param predicate the predicate, {@code null} to deliver every record
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> filter(Predicate<ConsumerRecord<K, V>> predicate);
+
   /**
    * Executes a poll for getting messages from Kafka.
    *
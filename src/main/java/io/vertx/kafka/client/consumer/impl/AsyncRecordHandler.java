@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Processes the records of a stream with a handler returning a future completed when the record is processed.
+ * <p>
+ * Up to a maximum number of records are processed concurrently, the stream is throttled when the limit is reached,
+ * independently of the demand of the user. A record whose future fails, or whose handler throws, is reported to the
+ * stream exception handler and its partition is not committed past it anymore, like with {@link RecordDispatcher}.
+ */
+class AsyncRecordHandler<K, V> {
+
+  private final ThrottledStream stream;
+  private final Context context;
+  private final int maxInFlight;
+  private final Function<ConsumerRecord<K, V>, Future<Void>> handler;
+  private final OffsetTracker offsets = new OffsetTracker();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicBoolean resuming = new AtomicBoolean();
+  private boolean paused; // Only accessed on the event loop
+
+  AsyncRecordHandler(ThrottledStream stream, Context context, int maxInFlight, Function<ConsumerRecord<K, V>, Future<Void>> handler) {
+    this.stream = stream;
+    this.context = context;
+    this.maxInFlight = maxInFlight;
+    this.handler = handler;
+  }
+
+  /**
+   * @return the offsets tracked for the records processed
+   */
+  OffsetTracker offsets() {
+    return offsets;
+  }
+
+  // Called on the event loop
+  void handle(ConsumerRecord<K, V> record) {
+    handle(record, offsets.dispatched(new TopicPartition(record.topic(), record.partition()), record.offset()));
+  }
+
+  /**
+   * Handle a record already tracked by the caller, the record is completed against the given partition offsets.
+   */
+  void handle(ConsumerRecord<K, V> record, OffsetTracker.Partition partition) {
+    if (inFlight.incrementAndGet() >= maxInFlight && !paused) {
+      paused = true;
+      stream.throttle(this);
+    }
+    Future<Void> future;
+    try {
+      future = handler.apply(record);
+    } catch (Throwable t) {
+      future = Future.failedFuture(t);
+    }
+    if (future == null) {
+      future = Future.succeededFuture();
+    }
+    future.onComplete(ar -> {
+      if (ar.failed()) {
+        partition.failed(record.offset());
+        context.runOnContext(v -> stream.reportFailure(ar.cause()));
+      } else {
+        partition.completed(record.offset());
+      }
+      if (inFlight.decrementAndGet() < maxInFlight && resuming.compareAndSet(false, true)) {
+        context.runOnContext(v -> resume());
+      }
+    });
+  }
+
+  // Called on the event loop, more records may be in flight again since the resume was requested
+  private void resume() {
+    resuming.set(false);
+    if (paused && inFlight.get() < maxInFlight) {
+      paused = false;
+      stream.unthrottle(this);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.common.impl.SerialExecutor;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A named pool of daemon threads shared by the consumers of a Vert.x instance created with the same worker pool name.
+ * <p>
+ * The pool is created by the first consumer using it, the other consumers must use the same size, and its threads
+ * are stopped when the last consumer using it is closed.
+ * <p>
+ * A consumer polling with nothing to fetch would keep a thread for the whole poll timeout, so the pool interrupts
+ * such a poll when a task submitted from outside the pool waits for a thread, and the polls are kept short while
+ * tasks are waiting. The tasks submitted from outside the pool, e.g. the polls requested by the event loop once the
+ * records are delivered, run before the polls retried by the pool threads.
+ */
+class ConsumerWorkerPool {
+
+  /**
+   * The poll timeout used while other tasks wait for a thread of the pool.
+   */
+  private static final Duration CONTENDED_POLL_TIMEOUT = Duration.ofMillis(10);
+
+  private static final Map<Vertx, Map<String, ConsumerWorkerPool>> pools = new HashMap<>();
+
+  /**
+   * Acquire the pool with the given name, creating it if needed.
+   *
+   * @param vertx the Vert.x instance of the consumer
+   * @param name the pool name
+   * @param size the number of threads of the pool
+   * @return the pool
+   * @throws IllegalStateException when the pool exists with a different size
+   */
+  static ConsumerWorkerPool acquire(Vertx vertx, String name, int size) {
+    synchronized (pools) {
+      ConsumerWorkerPool pool = pools
+        .computeIfAbsent(vertx, key -> new HashMap<>())
+        .computeIfAbsent(name, key -> new ConsumerWorkerPool(vertx, key, size));
+      if (pool.size != size) {
+        throw new IllegalStateException("Worker pool " + name + " already exists with " + pool.size + " threads");
+      }
+      pool.refCount++;
+      return pool;
+    }
+  }
+
+  private final Vertx vertx;
+  private final String name;
+  private final int size;
+  private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+  private final ConcurrentLinkedDeque<Runnable> idlePolls = new ConcurrentLinkedDeque<>(); // Wake up the consumers blocked in poll
+  private final ThreadPoolExecutor executor;
+  private int refCount;
+
+  private ConsumerWorkerPool(Vertx vertx, String name, int size) {
+    AtomicInteger threadCount = new AtomicInteger();
+    this.vertx = vertx;
+    this.name = name;
+    this.size = size;
+    this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new TaskQueue(), r -> {
+      Thread thread = new Thread(r, name + "-" + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      threads.add(thread);
+      return thread;
+    });
+  }
+
+  /**
+   * @return a new executor running its tasks one at a time on this pool
+   */
+  ExecutorService createWorker() {
+    return new SerialExecutor(this::execute);
+  }
+
+  private void execute(Runnable task) {
+    executor.execute(task);
+    if (!threads.contains(Thread.currentThread()) && !executor.getQueue().isEmpty()) {
+      // All the threads are busy, interrupt the oldest idle poll so the task does not wait for its timeout
+      Runnable wakeup = idlePolls.pollFirst();
+      if (wakeup != null) {
+        wakeup.run();
+      }
+    }
+  }
+
+  /**
+   * Poll a consumer on a thread of this pool, the poll can be interrupted by a {@code WakeupException} when other tasks
+   * need the thread.
+   *
+   * @param consumer the consumer
+   * @param timeout the poll timeout of the consumer
+   * @return the records
+   */
+  <K, V> ConsumerRecords<K, V> poll(Consumer<K, V> consumer, Duration timeout) {
+    Runnable wakeup = consumer::wakeup;
+    idlePolls.addLast(wakeup);
+    try {
+      if (!executor.getQueue().isEmpty() && timeout.compareTo(CONTENDED_POLL_TIMEOUT) > 0) {
+        // The consumers take turns
+        timeout = CONTENDED_POLL_TIMEOUT;
+      }
+      return consumer.poll(timeout);
+    } finally {
+      idlePolls.remove(wakeup);
+    }
+  }
+
+  /**
+   * Release this pool, the pool threads are stopped when it is not used anymore.
+   */
+  void release() {
+    synchronized (pools) {
+      if (--refCount == 0) {
+        Map<String, ConsumerWorkerPool> named = pools.get(vertx);
+        named.remove(name);
+        if (named.isEmpty()) {
+          pools.remove(vertx);
+        }
+        executor.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Queues the tasks submitted from outside the pool ahead of the tasks submitted by the pool threads.
+   */
+  private final class TaskQueue extends LinkedBlockingDeque<Runnable> {
+
+    @Override
+    public boolean offer(Runnable task) {
+      return threads.contains(Thread.currentThread()) ? offerLast(task) : offerFirst(task);
+    }
+  }
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import io.vertx.kafka.client.common.KafkaClientOptions;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.Utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * A consumer polling the raw bytes of the records with a native Kafka consumer and deserializing them itself,
+ * either when their key or value is first accessed or eagerly in parallel on a fork-join pool shared by all the
+ * consumers.
+ */
+public class DeserializingConsumer<K, V> implements Consumer<K, V> {
+
+  /**
+   * Create the native consumer for the given options, polling the raw bytes of the records when the options
+   * require this client to deserialize the records.
+   *
+   * @param config the consumer config
+   * @param keyDeserializer the key deserializer, or {@code null} to use the one of the config
+   * @param valueDeserializer the value deserializer, or {@code null} to use the one of the config
+   * @param options the client options
+   * @return the consumer
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> Consumer<K, V> create(Map<String, Object> config, Deserializer<K> keyDeserializer,
+                                             Deserializer<V> valueDeserializer, KafkaClientOptions options) {
+    boolean lazy = options.isLazyDeserialization();
+    int parallelism = options.getDeserializationParallelism();
+    if (!lazy && parallelism == 0) {
+      if (keyDeserializer == null && valueDeserializer == null) {
+        return new KafkaConsumer<>(config);
+      }
+      return new KafkaConsumer<>(config, keyDeserializer, valueDeserializer);
+    }
+    if (keyDeserializer == null || valueDeserializer == null) {
+      // Configured like the native consumer does
+      ConsumerConfig consumerConfig = new ConsumerConfig(config);
+      if (keyDeserializer == null) {
+        keyDeserializer = consumerConfig.getConfiguredInstance(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, Deserializer.class);
+        keyDeserializer.configure(consumerConfig.originals(), true);
+      }
+      if (valueDeserializer == null) {
+        valueDeserializer = consumerConfig.getConfiguredInstance(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, Deserializer.class);
+        valueDeserializer.configure(consumerConfig.originals(), false);
+      }
+    }
+    return new DeserializingConsumer<>(
+      new KafkaConsumer<>(config, new ByteArrayDeserializer(), new ByteArrayDeserializer()),
+      keyDeserializer,
+      valueDeserializer,
+      lazy ? 0 : parallelism);
+  }
+
+  /**
+   * Below this number of records a batch is deserialized on the polling thread, the hand-off would cost more.
+   */
+  static final int MIN_PARALLEL_RECORDS = 64;
+
+  /**
+   * The pool deserializing the records of all the consumers, with a thread per core, created on first use.
+   */
+  private static final class SharedPool {
+    static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  private final Consumer<byte[], byte[]> consumer;
+  private final Deserializer<K> keyDeserializer;
+  private final Deserializer<V> valueDeserializer;
+  private final int parallelism;
+
+  /**
+   * Create a consumer deserializing the records lazily.
+   */
+  public DeserializingConsumer(Consumer<byte[], byte[]> consumer, Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer) {
+    this(consumer, keyDeserializer, valueDeserializer, 0);
+  }
+
+  /**
+   * Create a consumer deserializing the records eagerly on up to {@code parallelism} threads of the shared pool,
+   * or lazily when {@code parallelism} is {@code 0}.
+   */
+  public DeserializingConsumer(Consumer<byte[], byte[]> consumer, Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer, int parallelism) {
+    this.consumer = consumer;
+    this.keyDeserializer = keyDeserializer;
+    this.valueDeserializer = valueDeserializer;
+    this.parallelism = parallelism;
+  }
+
+  private ConsumerRecords<K, V> deserialize(ConsumerRecords<byte[], byte[]> records) {
+    if (records.isEmpty()) {
+      return ConsumerRecords.empty();
+    }
+    if (parallelism > 0) {
+      return deserializeEagerly(records);
+    }
+    Map<TopicPartition, List<ConsumerRecord<K, V>>> map = new LinkedHashMap<>();
+    for (TopicPartition partition : records.partitions()) {
+      List<ConsumerRecord<byte[], byte[]>> raw = records.records(partition);
+      List<ConsumerRecord<K, V>> list = new ArrayList<>(raw.size());
+      for (ConsumerRecord<byte[], byte[]> record : raw) {
+        list.add(new LazyConsumerRecord<>(record, keyDeserializer, valueDeserializer));
+      }
+      map.put(partition, list);
+    }
+    return new ConsumerRecords<>(map);
+  }
+
+  private ConsumerRecords<K, V> deserializeEagerly(ConsumerRecords<byte[], byte[]> records) {
+    Map<TopicPartition, ConsumerRecord<K, V>[]> map = new LinkedHashMap<>();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    // At most parallelism tasks, so a consumer does not take the whole shared pool
+    int chunk = Math.max(MIN_PARALLEL_RECORDS, (records.count() + parallelism - 1) / parallelism);
+    for (TopicPartition partition : records.partitions()) {
+      List<ConsumerRecord<byte[], byte[]>> raw = records.records(partition);
+      @SuppressWarnings("unchecked")
+      ConsumerRecord<K, V>[] array = new ConsumerRecord[raw.size()];
+      map.put(partition, array);
+      // Each task fills its own range of the partition array, the order of the partition is kept
+      for (int from = 0; from < raw.size(); from += chunk) {
+        int start = from;
+        int end = Math.min(from + chunk, raw.size());
+        tasks.add(() -> {
+          for (int i = start; i < end; i++) {
+            array[i] = deserializeRecord(raw.get(i));
+          }
+          return null;
+        });
+      }
+    }
+    try {
+      if (records.count() < MIN_PARALLEL_RECORDS || tasks.size() == 1) {
+        for (Callable<Void> task : tasks) {
+          task.call();
+        }
+      } else {
+        for (Future<Void> future : SharedPool.INSTANCE.invokeAll(tasks)) {
+          future.get();
+        }
+      }
+    } catch (Exception e) {
+      // Like the native consumer, the next poll returns the records again
+      for (TopicPartition partition : records.partitions()) {
+        consumer.seek(partition, records.records(partition).get(0).offset());
+      }
+      Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+      if (cause instanceof SerializationException) {
+        throw (SerializationException) cause;
+      }
+      throw new SerializationException("Error deserializing the polled records", cause);
+    }
+    Map<TopicPartition, List<ConsumerRecord<K, V>>> result = new LinkedHashMap<>();
+    map.forEach((partition, array) -> result.put(partition, Arrays.asList(array)));
+    return new ConsumerRecords<>(result);
+  }
+
+  private ConsumerRecord<K, V> deserializeRecord(ConsumerRecord<byte[], byte[]> raw) {
+    K key = raw.key() == null ? null : keyDeserializer.deserialize(raw.topic(), raw.headers(), raw.key());
+    V value = raw.value() == null ? null : valueDeserializer.deserialize(raw.topic(), raw.headers(), raw.value());
+    return new ConsumerRecord<>(raw.topic(), raw.partition(), raw.offset(), raw.timestamp(), raw.timestampType(), null,
+      raw.serializedKeySize(), raw.serializedValueSize(), key, value, raw.headers(), raw.leaderEpoch());
+  }
+
+  @Override
+  public Set<TopicPartition> assignment() {
+    return consumer.assignment();
+  }
+
+  @Override
+  public Set<String> subscription() {
+    return consumer.subscription();
+  }
+
+  @Override
+  public void subscribe(Collection<String> topics) {
+    consumer.subscribe(topics);
+  }
+
+  @Override
+  public void subscribe(Collection<String> topics, ConsumerRebalanceListener callback) {
+    consumer.subscribe(topics, callback);
+  }
+
+  @Override
+  public void assign(Collection<TopicPartition> partitions) {
+    consumer.assign(partitions);
+  }
+
+  @Override
+  public void subscribe(Pattern pattern, ConsumerRebalanceListener callback) {
+    consumer.subscribe(pattern, callback);
+  }
+
+  @Override
+  public void subscribe(Pattern pattern) {
+    consumer.subscribe(pattern);
+  }
+
+  @Override
+  public void unsubscribe() {
+    consumer.unsubscribe();
+  }
+
+  @Deprecated
+  @Override
+  public ConsumerRecords<K, V> poll(long timeout) {
+    return deserialize(consumer.poll(Duration.ofMillis(timeout)));
+  }
+
+  @Override
+  public ConsumerRecords<K, V> poll(Duration timeout) {
+    return deserialize(consumer.poll(timeout));
+  }
+
+  @Override
+  public void commitSync() {
+    consumer.commitSync();
+  }
+
+  @Override
+  public void commitSync(Duration timeout) {
+    consumer.commitSync(timeout);
+  }
+
+  @Override
+  public void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+    consumer.commitSync(offsets);
+  }
+
+  @Override
+  public void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets, Duration timeout) {
+    consumer.commitSync(offsets, timeout);
+  }
+
+  @Override
+  public void commitAsync() {
+    consumer.commitAsync();
+  }
+
+  @Override
+  public void commitAsync(OffsetCommitCallback callback) {
+    consumer.commitAsync(callback);
+  }
+
+  @Override
+  public void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, OffsetCommitCallback callback) {
+    consumer.commitAsync(offsets, callback);
+  }
+
+  @Override
+  public void seek(TopicPartition partition, long offset) {
+    consumer.seek(partition, offset);
+  }
+
+  @Override
+  public void seek(TopicPartition partition, OffsetAndMetadata offsetAndMetadata) {
+    consumer.seek(partition, offsetAndMetadata);
+  }
+
+  @Override
+  public void seekToBeginning(Collection<TopicPartition> partitions) {
+    consumer.seekToBeginning(partitions);
+  }
+
+  @Override
+  public void seekToEnd(Collection<TopicPartition> partitions) {
+    consumer.seekToEnd(partitions);
+  }
+
+  @Override
+  public long position(TopicPartition partition) {
+    return consumer.position(partition);
+  }
+
+  @Override
+  public long position(TopicPartition partition, Duration timeout) {
+    return consumer.position(partition, timeout);
+  }
+
+  @Deprecated
+  @Override
+  public OffsetAndMetadata committed(TopicPartition partition) {
+    return consumer.committed(Collections.singleton(partition)).get(partition);
+  }
+
+  @Deprecated
+  @Override
+  public OffsetAndMetadata committed(TopicPartition partition, Duration timeout) {
+    return consumer.committed(Collections.singleton(partition), timeout).get(partition);
+  }
+
+  @Override
+  public Map<TopicPartition, OffsetAndMetadata> committed(Set<TopicPartition> partitions) {
+    return consumer.committed(partitions);
+  }
+
+  @Override
+  public Map<TopicPartition, OffsetAndMetadata> committed(Set<TopicPartition> partitions, Duration timeout) {
+    return consumer.committed(partitions, timeout);
+  }
+
+  @Override
+  public Map<MetricName, ? extends Metric> metrics() {
+    return consumer.metrics();
+  }
+
+  @Override
+  public List<PartitionInfo> partitionsFor(String topic) {
+    return consumer.partitionsFor(topic);
+  }
+
+  @Override
+  public List<PartitionInfo> partitionsFor(String topic, Duration timeout) {
+    return consumer.partitionsFor(topic, timeout);
+  }
+
+  @Override
+  public Map<String, List<PartitionInfo>> listTopics() {
+    return consumer.listTopics();
+  }
+
+  @Override
+  public Map<String, List<PartitionInfo>> listTopics(Duration timeout) {
+    return consumer.listTopics(timeout);
+  }
+
+  @Override
+  public Set<TopicPartition> paused() {
+    return consumer.paused();
+  }
+
+  @Override
+  public void pause(Collection<TopicPartition> partitions) {
+    consumer.pause(partitions);
+  }
+
+  @Override
+  public void resume(Collection<TopicPartition> partitions) {
+    consumer.resume(partitions);
+  }
+
+  @Override
+  public Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(Map<TopicPartition, Long> timestampsToSearch) {
+    return consumer.offsetsForTimes(timestampsToSearch);
+  }
+
+  @Override
+  public Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(Map<TopicPartition, Long> timestampsToSearch, Duration timeout) {
+    return consumer.offsetsForTimes(timestampsToSearch, timeout);
+  }
+
+  @Override
+  public Map<TopicPartition, Long> beginningOffsets(Collection<TopicPartition> partitions) {
+    return consumer.beginningOffsets(partitions);
+  }
+
+  @Override
+  public Map<TopicPartition, Long> beginningOffsets(Collection<TopicPartition> partitions, Duration timeout) {
+    return consumer.beginningOffsets(partitions, timeout);
+  }
+
+  @Override
+  public Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions) {
+    return consumer.endOffsets(partitions);
+  }
+
+  @Override
+  public Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions, Duration timeout) {
+    return consumer.endOffsets(partitions, timeout);
+  }
+
+  @Override
+  public ConsumerGroupMetadata groupMetadata() {
+    return consumer.groupMetadata();
+  }
+
+  @Override
+  public void enforceRebalance() {
+    consumer.enforceRebalance();
+  }
+
+  @Override
+  public void close() {
+    try {
+      consumer.close();
+    } finally {
+      closeDeserializers();
+    }
+  }
+
+  // Deprecated by the native consumer
+  public void close(long timeout, TimeUnit unit) {
+    close(Duration.ofMillis(unit.toMillis(timeout)));
+  }
+
+  @Override
+  public void close(Duration timeout) {
+    try {
+      consumer.close(timeout);
+    } finally {
+      closeDeserializers();
+    }
+  }
+
+  // Like the native consumer closes its deserializers
+  private void closeDeserializers() {
+    Utils.closeQuietly(keyDeserializer, "consumer key deserializer");
+    Utils.closeQuietly(valueDeserializer, "consumer value deserializer");
+  }
+
+  @Override
+  public void wakeup() {
+    consumer.wakeup();
+  }
+}
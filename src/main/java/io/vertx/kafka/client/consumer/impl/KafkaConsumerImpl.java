@@ -23,6 +23,7 @@ import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.impl.ContextInternal;
+import io.vertx.kafka.client.common.KafkaClientOptions;
 import io.vertx.kafka.client.consumer.OffsetAndTimestamp;
 import io.vertx.kafka.client.common.impl.CloseHandler;
 import io.vertx.kafka.client.common.impl.Helper;
@@ -34,6 +35,7 @@ import io.vertx.kafka.client.consumer.KafkaConsumerRecords;
 import io.vertx.kafka.client.consumer.KafkaReadStream;
 import io.vertx.kafka.client.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.serialization.Deserializer;
 
 import java.time.Duration;
 import java.util.ArrayList;
@@ -42,7 +44,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -52,6 +58,64 @@ import java.util.stream.Stream;
  */
 public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
 
+  public static <K, V> KafkaConsumer<K, V> createShared(Vertx vertx, String name, Properties config) {
+    return SharedConsumer.create(vertx, name, isBroadcast(config), () -> KafkaReadStream.create(vertx, withoutBroadcast(config)));
+  }
+
+  public static <K, V> KafkaConsumer<K, V> createShared(Vertx vertx, String name, Properties config, Class<K> keyType, Class<V> valueType) {
+    return SharedConsumer.create(vertx, name, isBroadcast(config), () -> KafkaReadStream.create(vertx, withoutBroadcast(config), keyType, valueType));
+  }
+
+  public static <K, V> KafkaConsumer<K, V> createShared(Vertx vertx, String name, Properties config, Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer) {
+    return SharedConsumer.create(vertx, name, isBroadcast(config), () -> KafkaReadStream.create(vertx, withoutBroadcast(config), keyDeserializer, valueDeserializer));
+  }
+
+  public static <K, V> KafkaConsumer<K, V> createShared(Vertx vertx, String name, Map<String, String> config) {
+    return SharedConsumer.create(vertx, name, isBroadcast(config), () -> KafkaReadStream.create(vertx, withoutBroadcast(config)));
+  }
+
+  public static <K, V> KafkaConsumer<K, V> createShared(Vertx vertx, String name, Map<String, String> config, Class<K> keyType, Class<V> valueType) {
+    return SharedConsumer.create(vertx, name, isBroadcast(config), () -> KafkaReadStream.create(vertx, withoutBroadcast(config), keyType, valueType));
+  }
+
+  public static <K, V> KafkaConsumer<K, V> createShared(Vertx vertx, String name, Map<String, String> config, Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer) {
+    return SharedConsumer.create(vertx, name, isBroadcast(config), () -> KafkaReadStream.create(vertx, withoutBroadcast(config), keyDeserializer, valueDeserializer));
+  }
+
+  public static <K, V> KafkaConsumer<K, V> createShared(Vertx vertx, String name, KafkaClientOptions options) {
+    return SharedConsumer.create(vertx, name, options.isSharedConsumerBroadcast(), () -> KafkaReadStream.create(vertx, options));
+  }
+
+  public static <K, V> KafkaConsumer<K, V> createShared(Vertx vertx, String name, KafkaClientOptions options, Class<K> keyType, Class<V> valueType) {
+    return SharedConsumer.create(vertx, name, options.isSharedConsumerBroadcast(), () -> KafkaReadStream.create(vertx, options, keyType, valueType));
+  }
+
+  public static <K, V> KafkaConsumer<K, V> createShared(Vertx vertx, String name, KafkaClientOptions options, Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer) {
+    return SharedConsumer.create(vertx, name, options.isSharedConsumerBroadcast(), () -> KafkaReadStream.create(vertx, options, keyDeserializer, valueDeserializer));
+  }
+
+  public static <K, V> KafkaConsumer<K, V> createShared(Vertx vertx, String name, boolean broadcast, Supplier<KafkaReadStream<K, V>> streamFactory) {
+    return SharedConsumer.create(vertx, name, broadcast, streamFactory);
+  }
+
+  private static boolean isBroadcast(Map<?, ?> config) {
+    return Boolean.parseBoolean(String.valueOf(config.get(KafkaClientOptions.SHARED_CONSUMER_BROADCAST_CONFIG)));
+  }
+
+  // The Vert.x setting is not passed to the native consumer
+  private static Map<String, Object> withoutBroadcast(Map<String, String> config) {
+    Map<String, Object> copy = new HashMap<>(config);
+    copy.remove(KafkaClientOptions.SHARED_CONSUMER_BROADCAST_CONFIG);
+    return copy;
+  }
+
+  private static Properties withoutBroadcast(Properties config) {
+    Properties copy = new Properties();
+    copy.putAll(config);
+    copy.remove(KafkaClientOptions.SHARED_CONSUMER_BROADCAST_CONFIG);
+    return copy;
+  }
+
   private final KafkaReadStream<K, V> stream;
   private final CloseHandler closeHandler;
 
@@ -678,6 +742,84 @@ public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
     return this;
   }
 
+  @Override
+  public KafkaConsumer<K, V> recordsPerTick(int records) {
+    this.stream.recordsPerTick(records);
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> tickDuration(Duration duration) {
+    this.stream.tickDuration(duration);
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> adaptiveTick(boolean adaptive) {
+    this.stream.adaptiveTick(adaptive);
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> prefetchRecords(int records) {
+    this.stream.prefetchRecords(records);
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> prefetchBytes(long bytes) {
+    this.stream.prefetchBytes(bytes);
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> partitionWatermarks(int high, int low) {
+    this.stream.partitionWatermarks(high, low);
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> commitOnRevoke(boolean enabled) {
+    this.stream.commitOnRevoke(enabled);
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> asyncCommit(boolean enabled) {
+    this.stream.asyncCommit(enabled);
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> dispatchHandler(int lanes, boolean byKey, Handler<KafkaConsumerRecord<K, V>> handler) {
+    if (handler != null) {
+      this.stream.dispatchHandler(lanes, byKey, record -> handler.handle(new KafkaConsumerRecordImpl<>(record)));
+    } else {
+      this.stream.dispatchHandler(lanes, byKey, null);
+    }
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> asyncHandler(int maxInFlight, Function<KafkaConsumerRecord<K, V>, Future<Void>> handler) {
+    if (handler != null) {
+      this.stream.asyncHandler(maxInFlight, record -> handler.apply(new KafkaConsumerRecordImpl<>(record)));
+    } else {
+      this.stream.asyncHandler(maxInFlight, null);
+    }
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> filter(Predicate<KafkaConsumerRecord<K, V>> predicate) {
+    if (predicate != null) {
+      this.stream.filter(record -> predicate.test(new KafkaConsumerRecordImpl<>(record)));
+    } else {
+      this.stream.filter(null);
+    }
+    return this;
+  }
+
   @Override
   public void poll(final Duration timeout, final Handler<AsyncResult<KafkaConsumerRecords<K, V>>> handler) {
     stream.poll(timeout, done -> {
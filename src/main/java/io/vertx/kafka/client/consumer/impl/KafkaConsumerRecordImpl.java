@@ -16,8 +16,11 @@
 
 package io.vertx.kafka.client.consumer.impl;
 
+import io.vertx.core.buffer.Buffer;
+import io.vertx.kafka.client.common.impl.Helper;
 import io.vertx.kafka.client.consumer.KafkaConsumerRecord;
 import io.vertx.kafka.client.producer.KafkaHeader;
+import io.vertx.kafka.client.producer.impl.KafkaHeaderImpl;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.record.TimestampType;
@@ -31,7 +34,7 @@ import java.util.List;
  */
 public class KafkaConsumerRecordImpl<K, V> implements KafkaConsumerRecord<K, V> {
 
-  private final ConsumerRecord<K, V> record;
+  private ConsumerRecord<K, V> record;
   private List<KafkaHeader> headers;
 
   /**
@@ -43,6 +46,12 @@ public class KafkaConsumerRecordImpl<K, V> implements KafkaConsumerRecord<K, V>
     this.record = record;
   }
 
+  // Move this view to another record, see KafkaConsumerRecords#forEach
+  void reset(ConsumerRecord<K, V> record) {
+    this.record = record;
+    this.headers = null;
+  }
+
   @Override
   public String topic() {
     return this.record.topic();
@@ -97,13 +106,40 @@ public class KafkaConsumerRecordImpl<K, V> implements KafkaConsumerRecord<K, V>
       } else {
         headers = new ArrayList<>();
         for (Header header : record.headers()) {
-          headers.add(KafkaHeader.header(header.key(), header.value()));
+          headers.add(header(header));
         }
       }
     }
     return headers;
   }
 
+  @Override
+  public KafkaHeader lastHeader(String key) {
+    if (record.headers() == null) {
+      return null;
+    }
+    Header header = record.headers().lastHeader(key);
+    return header != null ? header(header) : null;
+  }
+
+  @Override
+  public List<KafkaHeader> headers(String key) {
+    if (record.headers() == null) {
+      return Collections.emptyList();
+    }
+    List<KafkaHeader> list = new ArrayList<>();
+    for (Header header : record.headers().headers(key)) {
+      list.add(header(header));
+    }
+    return list;
+  }
+
+  // The header value wraps the native bytes
+  private static KafkaHeader header(Header header) {
+    byte[] value = header.value();
+    return new KafkaHeaderImpl(header.key(), value != null ? Helper.wrap(value) : Buffer.buffer());
+  }
+
   @Override
   public String toString() {
 
@@ -15,18 +15,18 @@
  */
 package io.vertx.kafka.client.consumer.impl;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 
+import io.vertx.core.Handler;
 import io.vertx.kafka.client.consumer.KafkaConsumerRecord;
 import io.vertx.kafka.client.consumer.KafkaConsumerRecords;
 
 public class KafkaConsumerRecordsImpl<K, V> implements KafkaConsumerRecords<K, V>{
 
   private final ConsumerRecords<K, V> records;
-  private List<KafkaConsumerRecord<K, V>> list;
+  private ConsumerRecord<K, V>[] flat;
+  private KafkaConsumerRecord<K, V>[] wrappers;
 
   public KafkaConsumerRecordsImpl(ConsumerRecords<K, V> records) {
     this.records = records;
@@ -42,13 +42,71 @@ public class KafkaConsumerRecordsImpl<K, V> implements KafkaConsumerRecords<K, V
     return records.isEmpty();
   }
 
+  @SuppressWarnings("unchecked")
+  private ConsumerRecord<K, V> nativeRecordAt(int index) {
+    if (flat == null) {
+      ConsumerRecord<K, V>[] array = new ConsumerRecord[records.count()];
+      int i = 0;
+      for (ConsumerRecord<K, V> record : records) {
+        array[i++] = record;
+      }
+      flat = array;
+    }
+    return flat[index];
+  }
+
   @Override
+  @SuppressWarnings("unchecked")
   public KafkaConsumerRecord<K, V> recordAt(int index) {
-    if (list == null) {
-      list = new ArrayList<>(records.count());
-      records.forEach(record -> list.add(new KafkaConsumerRecordImpl<K, V>(record)));
+    ConsumerRecord<K, V> record = nativeRecordAt(index);
+    if (wrappers == null) {
+      wrappers = new KafkaConsumerRecord[flat.length];
+    }
+    KafkaConsumerRecord<K, V> wrapper = wrappers[index];
+    if (wrapper == null) {
+      wrapper = new KafkaConsumerRecordImpl<>(record);
+      wrappers[index] = wrapper;
+    }
+    return wrapper;
+  }
+
+  @Override
+  public String topicAt(int index) {
+    return nativeRecordAt(index).topic();
+  }
+
+  @Override
+  public int partitionAt(int index) {
+    return nativeRecordAt(index).partition();
+  }
+
+  @Override
+  public long offsetAt(int index) {
+    return nativeRecordAt(index).offset();
+  }
+
+  @Override
+  public K keyAt(int index) {
+    return nativeRecordAt(index).key();
+  }
+
+  @Override
+  public V valueAt(int index) {
+    return nativeRecordAt(index).value();
+  }
+
+  @Override
+  public void forEach(Handler<KafkaConsumerRecord<K, V>> handler) {
+    // A single view is moved over the records
+    KafkaConsumerRecordImpl<K, V> view = null;
+    for (ConsumerRecord<K, V> record : records) {
+      if (view == null) {
+        view = new KafkaConsumerRecordImpl<>(record);
+      } else {
+        view.reset(record);
+      }
+      handler.handle(view);
     }
-    return list.get(index);
   }
 
   @Override
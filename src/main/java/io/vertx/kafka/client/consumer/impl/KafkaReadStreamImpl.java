@@ -25,6 +25,7 @@ import io.vertx.core.Vertx;
 import io.vertx.core.impl.ContextInternal;
 import io.vertx.kafka.client.common.KafkaClientOptions;
 import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.common.impl.VirtualThreads;
 import io.vertx.kafka.client.common.tracing.ConsumerTracer;
 import io.vertx.kafka.client.consumer.KafkaReadStream;
 import org.apache.kafka.clients.consumer.Consumer;
@@ -33,26 +34,34 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 /**
  * Kafka read stream implementation
  */
-public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
+public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V>, ThrottledStream {
 
   private static final AtomicInteger threadCount = new AtomicInteger(0);
+  private static final int MAX_ADAPTIVE_RECORDS_PER_TICK = 4096;
+  private static final long REVOKE_TIMEOUT_MS = 10_000L;
 
   private final Context context;
   private final AtomicBoolean closed = new AtomicBoolean(true);
@@ -61,29 +70,143 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   private final AtomicBoolean consuming = new AtomicBoolean(false);
   private final AtomicLong demand = new AtomicLong(Long.MAX_VALUE);
+  private volatile Object throttle; // The dispatching handler lagging behind, records are not delivered meanwhile
   private final AtomicBoolean polling = new AtomicBoolean(false);
+  private final AtomicBoolean inPoll = new AtomicBoolean(false); // Whether the consumer thread is blocked in poll
   private Handler<ConsumerRecord<K, V>> recordHandler;
   private Handler<Throwable> exceptionHandler;
-  private Iterator<ConsumerRecord<K, V>> current; // Accessed on event loop
+  private final ArrayDeque<List<ConsumerRecord<K, V>>> staged = new ArrayDeque<>(); // Runs of a single partition, accessed on event loop
+  private int stagedIndex; // Next record of the first staged run, accessed on event loop
+  private final ArrayDeque<ConsumerRecords<K, V>> prefetched = new ArrayDeque<>(); // Accessed on event loop
+  private long bufferedRecords; // Accessed on event loop
+  private long bufferedBytes; // Accessed on event loop
   private Handler<ConsumerRecords<K, V>> batchHandler;
+  private int highWatermark; // Partition watermarks, disabled when 0
+  private int lowWatermark;
+  private final Map<TopicPartition, Backlog> backlogs = new HashMap<>(); // Accessed on event loop
+  private Backlog stagedBacklog; // Backlog of the first staged run, accessed on event loop
+  private volatile OffsetTracker processedOffsets; // Set when the records are processed out of order
+  private volatile Predicate<ConsumerRecord<K, V>> filter;
+  private final Set<ConsumerRecord<K, V>> skipped = Collections.newSetFromMap(new IdentityHashMap<>()); // Rejected records staged to track their offsets, accessed on event loop
   private Handler<Set<TopicPartition>> partitionsRevokedHandler;
   private Handler<Set<TopicPartition>> partitionsAssignedHandler;
   private Duration pollTimeout = Duration.ofSeconds(1);
-
+  private int prefetchRecords;
+  private long prefetchBytes;
+  private int recordsPerTick = 10;
+  private long tickDurationNanos;
+  private boolean adaptiveTick;
+  private long recordNanos; // Moving average of the record handler latency, accessed on event loop
+  private boolean asyncCommit;
+  private volatile boolean commitOnRevoke;
+  private volatile java.util.function.Supplier<Map<TopicPartition, OffsetAndMetadata>> revokedOffsets; // Set by a shared consumer
+  private final Object commitLock = new Object();
+  private PendingCommits pendingCommits; // Guarded by commitLock
+  private int asyncCommitsInFlight; // Accessed on the consumer thread
+  private boolean commitWatchdog; // Accessed on the consumer thread
+
+  private final String workerPoolName;
+  private final int workerPoolSize;
+  private final boolean useVirtualThreads;
   private ExecutorService worker;
+  private ConsumerWorkerPool workerPool;
+
+  /**
+   * The records accepted by the filter of the stream.
+   * <p>
+   * When the records are processed out of order, the last record of a partition is kept even when rejected so its
+   * offset is tracked as processed once the records before it are processed, {@link #accepted} are then the records
+   * actually delivered to the batch handler.
+   */
+  private static final class FilteredRecords<K, V> extends ConsumerRecords<K, V> {
+
+    private final ConsumerRecords<K, V> accepted;
+    private final List<ConsumerRecord<K, V>> skipped;
+
+    private FilteredRecords(Map<TopicPartition, List<ConsumerRecord<K, V>>> records, Map<TopicPartition, List<ConsumerRecord<K, V>>> accepted, List<ConsumerRecord<K, V>> skipped) {
+      super(records);
+      this.accepted = skipped.isEmpty() ? this : new ConsumerRecords<>(accepted);
+      this.skipped = skipped;
+    }
+  }
 
-  private final ConsumerRebalanceListener rebalanceListener =  new ConsumerRebalanceListener() {
+  /**
+   * The records of a partition buffered by the stream, when the partition watermarks are set.
+   */
+  private static final class Backlog {
 
-    @Override
-    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+    private int records;
+    private boolean paused; // Whether the partition was paused by the stream
+  }
 
-      Handler<Set<TopicPartition>> handler = partitionsRevokedHandler;
-      if (handler != null) {
+  /**
+   * The commit requests coalesced into a single asynchronous commit.
+   */
+  private final class PendingCommits {
+
+    private final List<Map<TopicPartition, OffsetAndMetadata>> offsets = new ArrayList<>();
+    private final List<Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>>> handlers = new ArrayList<>();
+    private final Map<TopicPartition, OffsetAndMetadata> merged = new HashMap<>();
+    private boolean all;
+    private int remaining; // Accessed on the consumer thread
+    private Throwable failure; // Accessed on the consumer thread
+
+    private void add(Map<TopicPartition, OffsetAndMetadata> offsets, Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>> handler) {
+      if (offsets == null) {
+        this.all = true;
+      } else {
+        offsets.forEach((partition, offset) -> this.merged.merge(partition, offset, (prev, next) -> next.offset() >= prev.offset() ? next : prev));
+      }
+      this.offsets.add(offsets);
+      this.handlers.add(handler);
+    }
+
+    // Called on the consumer thread when one of the commits issued for these requests completes
+    private void completed(Throwable err) {
+      if (err != null && this.failure == null) {
+        this.failure = err;
+      }
+      if (--this.remaining == 0) {
+        Throwable cause = this.failure;
         context.runOnContext(v -> {
-          handler.handle(Helper.toSet(partitions));
+          for (int i = 0; i < this.handlers.size(); i++) {
+            Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>> handler = this.handlers.get(i);
+            if (handler != null) {
+              handler.handle(cause == null ? Future.succeededFuture(this.offsets.get(i)) : Future.failedFuture(cause));
+            }
+          }
+          Handler<Throwable> exceptionHandler = KafkaReadStreamImpl.this.exceptionHandler;
+          if (cause != null && exceptionHandler != null) {
+            exceptionHandler.handle(cause);
+          }
         });
       }
     }
+  }
+
+  private final ConsumerRebalanceListener rebalanceListener =  new ConsumerRebalanceListener() {
+
+    // Called on the consumer thread, the partitions are still owned until it returns
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+      Map<TopicPartition, OffsetAndMetadata> offsets = revoke(partitions, commitOnRevoke);
+      if (!offsets.isEmpty()) {
+        try {
+          retryOnWakeup(() -> consumer.commitSync(offsets));
+        } catch (Exception e) {
+          Handler<Throwable> exceptionHandler = KafkaReadStreamImpl.this.exceptionHandler;
+          if (exceptionHandler != null) {
+            context.runOnContext(v -> exceptionHandler.handle(e));
+          }
+        }
+      }
+    }
+
+    // Called on the consumer thread, the partitions are already owned by another member and cannot be committed
+    @Override
+    public void onPartitionsLost(Collection<TopicPartition> partitions) {
+      revoke(partitions, false);
+    }
 
     @Override
     public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
@@ -97,15 +220,177 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
     }
   };
 
+  /**
+   * Drop the records of the revoked partitions buffered by the stream before the partitions are reassigned, only
+   * these partitions are affected so the other ones keep flowing with the cooperative rebalance protocol. This waits
+   * for the event loop, up to {@link #REVOKE_TIMEOUT_MS}, since the buffered records are accessed on the event loop.
+   * When the wait times out, a {@link TimeoutException} is reported and the offsets to commit are computed without the
+   * event loop, from the processed offsets or the positions.
+   *
+   * @return the offsets of the processed records to commit when {@code commit} is {@code true}
+   */
+  private Map<TopicPartition, OffsetAndMetadata> revoke(Collection<TopicPartition> partitions, boolean commit) {
+    if (partitions.isEmpty()) {
+      // The eager rebalance protocol revokes even when no partition is owned
+      Handler<Set<TopicPartition>> handler = this.partitionsRevokedHandler;
+      if (handler != null) {
+        this.context.runOnContext(v -> handler.handle(Collections.emptySet()));
+      }
+      return Collections.emptyMap();
+    }
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    Map<TopicPartition, Long> dropped = new HashMap<>();
+    AtomicBoolean expired = new AtomicBoolean();
+    CountDownLatch latch = new CountDownLatch(1);
+    this.context.runOnContext(v -> {
+      try {
+        // The paused state of a revoked partition is cleared by the native consumer
+        this.backlogs.keySet().removeAll(partitions);
+        Map<TopicPartition, Long> clearedOffsets = this.clearBuffered(partitions);
+        Map<TopicPartition, OffsetAndMetadata> committable = commit ? this.committable(partitions) : null;
+        synchronized (offsets) {
+          // Not collected anymore once the listener stopped waiting
+          if (!expired.get()) {
+            dropped.putAll(clearedOffsets);
+            if (committable != null) {
+              offsets.putAll(committable);
+            }
+          }
+        }
+        OffsetTracker processedOffsets = this.processedOffsets;
+        if (processedOffsets != null) {
+          processedOffsets.reset(partitions);
+        }
+        Handler<Set<TopicPartition>> handler = this.partitionsRevokedHandler;
+        if (handler != null) {
+          handler.handle(Helper.toSet(partitions));
+        }
+      } finally {
+        latch.countDown();
+      }
+    });
+    boolean completed;
+    try {
+      completed = latch.await(REVOKE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      completed = false;
+    }
+    synchronized (offsets) {
+      if (!completed && latch.getCount() > 0) {
+        expired.set(true);
+      }
+    }
+    if (expired.get()) {
+      // The buffered records may still be delivered after the partitions are handed over
+      Handler<Throwable> exceptionHandler = this.exceptionHandler;
+      if (exceptionHandler != null) {
+        TimeoutException err = new TimeoutException("Timed out waiting for the event loop to revoke partitions " + partitions);
+        this.context.runOnContext(v -> exceptionHandler.handle(err));
+      }
+      if (!commit) {
+        return Collections.emptyMap();
+      }
+      Map<TopicPartition, OffsetAndMetadata> committable = this.committable(partitions);
+      if (committable != null) {
+        return committable;
+      }
+    }
+    if (commit && this.processedOffsets == null && this.revokedOffsets == null) {
+      // The records delivered in order up to the first dropped record, or up to the position, are processed
+      for (TopicPartition partition : partitions) {
+        Long offset = dropped.get(partition);
+        if (offset == null) {
+          offset = retryOnWakeup(() -> this.consumer.position(partition));
+        }
+        offsets.put(partition, new OffsetAndMetadata(offset));
+      }
+    }
+    return offsets;
+  }
+
+  /**
+   * @return the offsets of the processed records of the given partitions, {@code null} when the processed records
+   *         are not tracked
+   */
+  private Map<TopicPartition, OffsetAndMetadata> committable(Collection<TopicPartition> partitions) {
+    java.util.function.Supplier<Map<TopicPartition, OffsetAndMetadata>> revokedOffsets = this.revokedOffsets;
+    OffsetTracker processedOffsets = this.processedOffsets;
+    Map<TopicPartition, OffsetAndMetadata> committable;
+    if (revokedOffsets != null) {
+      committable = revokedOffsets.get();
+    } else if (processedOffsets != null) {
+      committable = processedOffsets.committable();
+    } else {
+      return null;
+    }
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    committable.forEach((partition, offset) -> {
+      if (partitions.contains(partition)) {
+        offsets.put(partition, offset);
+      }
+    });
+    return offsets;
+  }
+
+  /**
+   * Set the offsets committed for the revoked partitions in place of the offsets of the records processed by this
+   * stream, e.g. the offsets processed by every member of a shared consumer. Called before the partitions revoked
+   * handler.
+   */
+  void revokedOffsets(java.util.function.Supplier<Map<TopicPartition, OffsetAndMetadata>> offsets) {
+    this.revokedOffsets = offsets;
+  }
+
+  /**
+   * Run a call of the rebalance listener again when it is interrupted by a wakeup of the shared worker pool meant for
+   * the poll running the listener.
+   */
+  private <T> T retryOnWakeup(java.util.function.Supplier<T> call) {
+    try {
+      return call.get();
+    } catch (WakeupException e) {
+      if (this.closed.get()) {
+        throw e;
+      }
+      return call.get();
+    }
+  }
+
+  private void retryOnWakeup(Runnable call) {
+    this.retryOnWakeup(() -> {
+      call.run();
+      return null;
+    });
+  }
+
   public KafkaReadStreamImpl(Vertx vertx, Consumer<K, V> consumer, KafkaClientOptions options) {
     this.consumer = consumer;
     ContextInternal ctxInt = (ContextInternal) vertx.getOrCreateContext();
     this.context = ctxInt;
     this.tracer = ConsumerTracer.create(ctxInt.tracer(), options);
+    this.workerPoolName = options.getWorkerPoolName();
+    this.workerPoolSize = options.getWorkerPoolSize();
+    this.useVirtualThreads = options.isUseVirtualThreads();
+    if (this.useVirtualThreads && !VirtualThreads.isSupported()) {
+      throw new IllegalStateException("Virtual threads are not supported by this JDK");
+    }
   }
 
   private <T> void start(java.util.function.BiConsumer<Consumer<K, V>, Promise<T>> task, Handler<AsyncResult<T>> handler) {
-    this.worker = Executors.newSingleThreadExecutor(r -> new Thread(r, "vert.x-kafka-consumer-thread-" + threadCount.getAndIncrement()));
+    if (this.useVirtualThreads) {
+      this.worker = VirtualThreads.createWorker();
+    } else if (this.workerPoolName != null) {
+      try {
+        this.workerPool = ConsumerWorkerPool.acquire(this.context.owner(), this.workerPoolName, this.workerPoolSize);
+      } catch (IllegalStateException e) {
+        this.closed.set(true);
+        throw e;
+      }
+      this.worker = this.workerPool.createWorker();
+    } else {
+      this.worker = Executors.newSingleThreadExecutor(r -> new Thread(r, "vert.x-kafka-consumer-thread-" + threadCount.getAndIncrement()));
+    }
     this.submitTaskWhenStarted(task, handler);
   }
 
@@ -126,7 +411,15 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
           });
       }
       try {
-        task.accept(this.consumer, future);
+        try {
+          task.accept(this.consumer, future);
+        } catch (WakeupException e) {
+          // The wakeup meant for the poll arrived after it returned, it is consumed now so the task can be retried
+          if (this.closed.get()) {
+            throw e;
+          }
+          task.accept(this.consumer, future);
+        }
       } catch (Exception e) {
         if (future != null) {
           future.tryFail(e);
@@ -136,56 +429,117 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
         }
       }
     });
+    // Interrupt the poll in progress so the task does not wait for the poll timeout
+    if (this.inPoll.get()) {
+      this.consumer.wakeup();
+    }
   }
 
   private void pollRecords(Handler<ConsumerRecords<K, V>> handler) {
-      if(this.polling.compareAndSet(false, true)){
-          this.worker.submit(() -> {
-             boolean submitted = false;
-             try {
-                if (!this.closed.get()) {
-                  try {
-                    ConsumerRecords<K, V> records = this.consumer.poll(pollTimeout);
-                    if (records != null && records.count() > 0) {
-                      submitted = true; // sets false only when the iterator is overwritten
-                      this.context.runOnContext(v -> {
-                          this.polling.set(false);
-                          handler.handle(records);
-                      });
-                    }
-                  } catch (WakeupException ignore) {
-                  } catch (Exception e) {
-                    if (exceptionHandler != null) {
-                      exceptionHandler.handle(e);
-                    }
-                  }
-                }
-             } finally {
-                 if(!submitted){
-                     this.context.runOnContext(v -> {
-                         this.polling.set(false);
-                         schedule(0);
-                     });
-                 }
-             }
-          });
+    if (this.polling.compareAndSet(false, true)) {
+      this.worker.submit(() -> this.doPoll(handler));
+    }
+  }
+
+  // Runs on the consumer thread, empty polls are retried on this thread for as long as
+  // the stream has demand so the event loop is only involved when records are available
+  private void doPoll(Handler<ConsumerRecords<K, V>> handler) {
+    boolean submitted = false;
+    try {
+      if (!this.closed.get()) {
+        try {
+          ConsumerRecords<K, V> polled;
+          this.inPoll.set(true);
+          try {
+            ConsumerWorkerPool workerPool = this.workerPool;
+            polled = workerPool != null ? workerPool.poll(this.consumer, pollTimeout) : this.consumer.poll(pollTimeout);
+          } finally {
+            this.inPoll.set(false);
+          }
+          Predicate<ConsumerRecord<K, V>> filter = this.filter;
+          ConsumerRecords<K, V> records = filter != null && polled != null && !polled.isEmpty() ? this.filter(polled, filter) : polled;
+          if (records != null && records.count() > 0) {
+            submitted = true; // sets false only when the iterator is overwritten
+            this.context.runOnContext(v -> {
+              this.polling.set(false);
+              handler.handle(records);
+            });
+          } else if (!this.closed.get() && this.consuming.get() && this.hasDemand()) {
+            submitted = true;
+            this.worker.submit(() -> this.doPoll(handler));
+          }
+        } catch (WakeupException ignore) {
+          // Woken up by a task submitted during the poll, the poll is resumed after that task
+          if (!this.closed.get() && this.consuming.get() && this.hasDemand()) {
+            submitted = true;
+            this.worker.submit(() -> this.doPoll(handler));
+          }
+        } catch (Exception e) {
+          Handler<Throwable> exceptionHandler = this.exceptionHandler;
+          if (exceptionHandler != null) {
+            this.context.runOnContext(v -> exceptionHandler.handle(e));
+          }
+        }
       }
+    } finally {
+      if (!submitted) {
+        this.context.runOnContext(v -> {
+          this.polling.set(false);
+          schedule();
+        });
+      }
+    }
+  }
+
+  // Runs on the consumer thread, so the rejected records never reach the event loop. The positions are already past the
+  // records, so a record whose predicate throws is rejected and the failure is reported
+  private ConsumerRecords<K, V> filter(ConsumerRecords<K, V> records, Predicate<ConsumerRecord<K, V>> filter) {
+    boolean track = this.processedOffsets != null;
+    Map<TopicPartition, List<ConsumerRecord<K, V>>> kept = new LinkedHashMap<>();
+    Map<TopicPartition, List<ConsumerRecord<K, V>>> accepted = track ? new LinkedHashMap<>() : kept;
+    List<ConsumerRecord<K, V>> skipped = track ? new ArrayList<>() : Collections.emptyList();
+    for (TopicPartition partition : records.partitions()) {
+      List<ConsumerRecord<K, V>> run = records.records(partition);
+      List<ConsumerRecord<K, V>> list = new ArrayList<>();
+      for (ConsumerRecord<K, V> record : run) {
+        boolean accept;
+        try {
+          accept = filter.test(record);
+        } catch (Exception e) {
+          this.context.runOnContext(v -> this.reportFailure(e));
+          accept = false;
+        }
+        if (accept) {
+          list.add(record);
+        }
+      }
+      if (!list.isEmpty()) {
+        accepted.put(partition, list);
+      }
+      ConsumerRecord<K, V> last = run.get(run.size() - 1);
+      if (track && (list.isEmpty() || list.get(list.size() - 1) != last)) {
+        list = new ArrayList<>(list);
+        list.add(last);
+        skipped.add(last);
+      }
+      if (!list.isEmpty()) {
+        kept.put(partition, list);
+      }
+    }
+    return new FilteredRecords<>(kept, accepted, skipped);
   }
 
-  private void schedule(long delay) {
+  private void schedule() {
     Handler<ConsumerRecord<K, V>> handler = this.recordHandler;
 
     if (this.consuming.get()
-        && this.demand.get() > 0L
-        && handler != null) {
+        && this.hasDemand()) {
 
-      this.context.runOnContext(v1 -> {
-        if (delay > 0) {
-          this.context.owner().setTimer(delay, v2 -> run(handler));
-        } else {
-          run(handler);
-        }
-      });
+      if (handler != null) {
+        this.context.runOnContext(v -> run(handler));
+      } else if (this.batchHandler != null) {
+        this.context.runOnContext(v -> runBatches());
+      }
     }
   }
 
@@ -196,44 +550,304 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
       return;
     }
 
-    if (this.current == null || !this.current.hasNext()) {
+    if (this.staged.isEmpty()) {
+
+      ConsumerRecords<K, V> next = this.prefetched.poll();
+      if (next != null) {
+        // Left over by the batch only mode
+        this.stage(next);
+        this.schedule();
+      } else {
+        this.pollRecords(this::handleRecords);
+      }
+
+    } else {
+
+      int budget = this.tickBudget();
+      boolean timed = this.tickDurationNanos > 0L;
+      long start = timed ? System.nanoTime() : 0L;
+      int count = 0;
+      Set<TopicPartition> resumed = null;
+      while (!this.staged.isEmpty() && count < budget) {
+
+        List<ConsumerRecord<K, V>> run = this.staged.peek();
+        ConsumerRecord<K, V> next = run.get(this.stagedIndex);
+        boolean skip = !this.skipped.isEmpty() && this.skipped.remove(next);
 
-      this.pollRecords(records -> {
+        // to honor the Vert.x ReadStream contract, handler should not be called if stream is paused
+        if (!skip && !this.claimDemand()) {
+          break;
+        }
 
-        if (records != null && records.count() > 0) {
-          this.current = records.iterator();
-          if (batchHandler != null) {
-            batchHandler.handle(records);
+        if (this.stagedIndex == 0) {
+          this.stagedBacklog = this.highWatermark > 0 ? this.backlogs.get(new TopicPartition(next.topic(), next.partition())) : null;
+        }
+        Backlog backlog = this.stagedBacklog;
+        if (++this.stagedIndex == run.size()) {
+          this.staged.poll();
+          this.stagedIndex = 0;
+        }
+        this.bufferedRecords--;
+        this.bufferedBytes -= sizeOf(next);
+        if (backlog != null && --backlog.records <= this.lowWatermark && backlog.paused) {
+          backlog.paused = false;
+          if (resumed == null) {
+            resumed = new HashSet<>();
           }
-          this.schedule(0);
-        } else {
-          this.schedule(1);
+          resumed.add(new TopicPartition(next.topic(), next.partition()));
         }
-      });
+        if (skip) {
+          // Rejected by the filter, its offset is processed along with the records before it
+          OffsetTracker processedOffsets = this.processedOffsets;
+          if (processedOffsets != null) {
+            processedOffsets.dispatched(new TopicPartition(next.topic(), next.partition()), next.offset()).completed(next.offset());
+          }
+          continue;
+        }
+        count++;
+        this.tracedHandler(handler).handle(next);
+        if (timed && !this.adaptiveTick && System.nanoTime() - start >= this.tickDurationNanos) {
+          break;
+        }
+      }
+      if (timed && this.adaptiveTick && count > 0) {
+        long elapsed = Math.max(1L, (System.nanoTime() - start) / count);
+        this.recordNanos = this.recordNanos == 0L ? elapsed : this.recordNanos + (elapsed - this.recordNanos) / 8;
+      }
+      if (resumed != null) {
+        this.resume(resumed, null);
+      }
+      if (this.shouldPrefetch()) {
+        this.pollRecords(this::handleRecords);
+      }
+      this.schedule();
+    }
+  }
+
+  // Batch only mode, each batch delivered to the batch handler consumes one unit of demand
+  private void runBatches() {
+
+    if (this.closed.get() || this.recordHandler != null) {
+      return;
+    }
+
+    Handler<ConsumerRecords<K, V>> handler = this.batchHandler;
+    if (handler == null) {
+      return;
+    }
+
+    ConsumerRecords<K, V> next = this.prefetched.peek();
+    if (next == null) {
+      this.pollRecords(this::handleRecords);
+    } else if (this.claimDemand()) {
+      this.prefetched.poll();
+      this.bufferedRecords -= next.count();
+      for (ConsumerRecord<K, V> record : next) {
+        this.bufferedBytes -= sizeOf(record);
+      }
+      handler.handle(next);
+      if (this.shouldPrefetch()) {
+        this.pollRecords(this::handleRecords);
+      }
+      this.schedule();
+    }
+  }
+
+  /**
+   * @return whether records can be delivered, i.e. the user demand is positive and the stream is not throttled
+   */
+  private boolean hasDemand() {
+    return this.throttle == null && this.demand.get() > 0L;
+  }
+
+  private boolean claimDemand() {
+    if (this.throttle != null) {
+      return false;
+    }
+    while (true) {
+      long v = this.demand.get();
+      if (v <= 0L) {
+        return false;
+      } else if (v == Long.MAX_VALUE || this.demand.compareAndSet(v, v - 1)) {
+        return true;
+      }
+    }
+  }
 
+  // Called on the event loop with a non empty batch of records
+  private void handleRecords(ConsumerRecords<K, V> records) {
+    if (this.recordHandler == null && this.batchHandler != null && records instanceof FilteredRecords) {
+      // No offset tracking in batch only mode
+      records = ((FilteredRecords<K, V>) records).accepted;
+      if (records.isEmpty()) {
+        this.schedule();
+        return;
+      }
+    }
+    this.bufferedRecords += records.count();
+    for (ConsumerRecord<K, V> record : records) {
+      this.bufferedBytes += sizeOf(record);
+    }
+    if (this.recordHandler == null && this.batchHandler != null) {
+      // Batch only mode, the batch is delivered by runBatches when the stream has demand
+      this.prefetched.add(records);
     } else {
+      if (records instanceof FilteredRecords) {
+        FilteredRecords<K, V> filtered = (FilteredRecords<K, V>) records;
+        this.skipped.addAll(filtered.skipped);
+        if (this.batchHandler != null && !filtered.accepted.isEmpty()) {
+          this.batchHandler.handle(filtered.accepted);
+        }
+      } else if (this.batchHandler != null) {
+        this.batchHandler.handle(records);
+      }
+      this.stage(records);
+    }
+    this.schedule();
+  }
+
+  // Records are staged in runs of a single partition, in the order of the batch
+  private void stage(ConsumerRecords<K, V> records) {
+    Set<TopicPartition> paused = null;
+    for (TopicPartition partition : records.partitions()) {
+      List<ConsumerRecord<K, V>> run = records.records(partition);
+      if (!run.isEmpty()) {
+        this.staged.add(run);
+        if (this.highWatermark > 0) {
+          Backlog backlog = this.backlogs.computeIfAbsent(partition, key -> new Backlog());
+          backlog.records += run.size();
+          if (backlog.records >= this.highWatermark && !backlog.paused) {
+            backlog.paused = true;
+            if (paused == null) {
+              paused = new HashSet<>();
+            }
+            paused.add(partition);
+          }
+        }
+      }
+    }
+    if (paused != null) {
+      // The other partitions keep being fetched while these ones catch up
+      this.pause(paused, null);
+    }
+  }
 
-      int count = 0;
-      out:
-      while (this.current.hasNext() && count++ < 10) {
+  // The maximum number of records delivered before yielding the event loop
+  private int tickBudget() {
+    if (this.adaptiveTick && this.tickDurationNanos > 0L && this.recordNanos > 0L) {
+      return (int) Math.max(1L, Math.min(MAX_ADAPTIVE_RECORDS_PER_TICK, this.tickDurationNanos / this.recordNanos));
+    }
+    return this.recordsPerTick;
+  }
 
-        // to honor the Vert.x ReadStream contract, handler should not be called if stream is paused
-        while (true) {
-          long v = this.demand.get();
-          if (v <= 0L) {
-            break out;
-          } else if (v == Long.MAX_VALUE || this.demand.compareAndSet(v, v - 1)) {
-            break;
+  private boolean shouldPrefetch() {
+    if (this.prefetchRecords <= 0 && this.prefetchBytes <= 0L) {
+      return false;
+    }
+    // Records beyond a bounded demand would only wait in memory, and be discarded on seek or rebalance
+    long demand = this.demand.get();
+    if (demand != Long.MAX_VALUE && this.bufferedRecords >= demand) {
+      return false;
+    }
+    return (this.prefetchRecords <= 0 || this.bufferedRecords < this.prefetchRecords)
+      && (this.prefetchBytes <= 0L || this.bufferedBytes < this.prefetchBytes);
+  }
+
+  // Drop the records fetched but not yet delivered, e.g. after a seek
+  private void clearBuffered() {
+    this.clearBacklogs(new ArrayList<>(this.backlogs.keySet()));
+    this.staged.clear();
+    this.skipped.clear();
+    this.stagedIndex = 0;
+    this.prefetched.clear();
+    this.bufferedRecords = 0L;
+    this.bufferedBytes = 0L;
+  }
+
+  // Drop the records fetched but not yet delivered of the given partitions only,
+  // returns the offset of the first record dropped for each partition
+  private Map<TopicPartition, Long> clearBuffered(Collection<TopicPartition> partitions) {
+    Map<TopicPartition, Long> dropped = new HashMap<>();
+    this.clearBacklogs(partitions);
+    if (!this.skipped.isEmpty()) {
+      this.skipped.removeIf(record -> partitions.contains(new TopicPartition(record.topic(), record.partition())));
+    }
+    Iterator<List<ConsumerRecord<K, V>>> it = this.staged.iterator();
+    boolean head = true;
+    while (it.hasNext()) {
+      List<ConsumerRecord<K, V>> run = it.next();
+      int from = head ? this.stagedIndex : 0;
+      TopicPartition partition = new TopicPartition(run.get(0).topic(), run.get(0).partition());
+      if (partitions.contains(partition)) {
+        dropped.putIfAbsent(partition, run.get(from).offset());
+        for (int i = from; i < run.size(); i++) {
+          this.bufferedRecords--;
+          this.bufferedBytes -= sizeOf(run.get(i));
+        }
+        it.remove();
+        if (head) {
+          this.stagedIndex = 0;
+        }
+      } else {
+        head = false;
+      }
+    }
+    int size = this.prefetched.size();
+    for (int i = 0; i < size; i++) {
+      ConsumerRecords<K, V> records = this.prefetched.poll();
+      Map<TopicPartition, List<ConsumerRecord<K, V>>> kept = new LinkedHashMap<>();
+      for (TopicPartition partition : records.partitions()) {
+        List<ConsumerRecord<K, V>> run = records.records(partition);
+        if (partitions.contains(partition)) {
+          dropped.putIfAbsent(partition, run.get(0).offset());
+          for (ConsumerRecord<K, V> record : run) {
+            this.bufferedRecords--;
+            this.bufferedBytes -= sizeOf(record);
           }
+        } else {
+          kept.put(partition, run);
         }
+      }
+      if (!kept.isEmpty()) {
+        this.prefetched.add(kept.size() == records.partitions().size() ? records : new ConsumerRecords<>(kept));
+      }
+    }
+    return dropped;
+  }
 
-        ConsumerRecord<K, V> next = this.current.next();
-        this.tracedHandler(handler).handle(next);
+  // Forget the backlogs of the given partitions, resuming the ones paused by the stream
+  private void clearBacklogs(Collection<TopicPartition> partitions) {
+    if (this.backlogs.isEmpty()) {
+      return;
+    }
+    Set<TopicPartition> paused = new HashSet<>();
+    for (TopicPartition partition : partitions) {
+      Backlog backlog = this.backlogs.remove(partition);
+      if (backlog != null && backlog.paused) {
+        paused.add(partition);
+      }
+    }
+    if (!paused.isEmpty()) {
+      this.resume(paused, null);
+    }
+  }
+
+  // Stop tracking the processed offsets of the given partitions, all of them when empty
+  private void resetOffsets(Collection<TopicPartition> partitions) {
+    OffsetTracker processedOffsets = this.processedOffsets;
+    if (processedOffsets != null) {
+      if (partitions.isEmpty()) {
+        processedOffsets.reset();
+      } else {
+        processedOffsets.reset(partitions);
       }
-      this.schedule(0);
     }
   }
 
+  private static int sizeOf(ConsumerRecord<?, ?> record) {
+    return Math.max(record.serializedKeySize(), 0) + Math.max(record.serializedValueSize(), 0);
+  }
+
   private Handler<ConsumerRecord<K, V>> tracedHandler(Handler<ConsumerRecord<K, V>> handler) {
     return this.tracer == null ? handler :
       rec -> {
@@ -364,7 +978,13 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
   @Override
   public KafkaReadStream<K, V> seekToEnd(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler) {
     this.context.runOnContext(r -> {
-      current = null;
+      // An empty collection applies to all the assigned partitions
+      if (topicPartitions.isEmpty()) {
+        clearBuffered();
+      } else {
+        clearBuffered(topicPartitions);
+      }
+      resetOffsets(topicPartitions);
 
       this.submitTask((consumer, future) -> {
         consumer.seekToEnd(topicPartitions);
@@ -386,7 +1006,13 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
   @Override
   public KafkaReadStream<K, V> seekToBeginning(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler) {
     this.context.runOnContext(r -> {
-      current = null;
+      // An empty collection applies to all the assigned partitions
+      if (topicPartitions.isEmpty()) {
+        clearBuffered();
+      } else {
+        clearBuffered(topicPartitions);
+      }
+      resetOffsets(topicPartitions);
 
       this.submitTask((consumer, future) -> {
         consumer.seekToBeginning(topicPartitions);
@@ -408,7 +1034,8 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
   @Override
   public KafkaReadStream<K, V> seek(TopicPartition topicPartition, long offset, Handler<AsyncResult<Void>> completionHandler) {
     this.context.runOnContext(r -> {
-      current = null;
+      clearBuffered(Collections.singleton(topicPartition));
+      resetOffsets(Collections.singleton(topicPartition));
 
       this.submitTask((consumer, future) -> {
         consumer.seek(topicPartition, offset);
@@ -615,6 +1242,23 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   @Override
   public void commit(Map<TopicPartition, OffsetAndMetadata> offsets, Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>> completionHandler) {
+    OffsetTracker processedOffsets = this.processedOffsets;
+    if (offsets == null && processedOffsets != null) {
+      // Only the offsets below which every record has been processed are committed
+      Map<TopicPartition, OffsetAndMetadata> processed = processedOffsets.committable();
+      if (processed.isEmpty()) {
+        if (completionHandler != null) {
+          this.context.runOnContext(v -> completionHandler.handle(Future.succeededFuture(processed)));
+        }
+      } else {
+        this.commit(processed, completionHandler);
+      }
+      return;
+    }
+    if (this.asyncCommit) {
+      this.commitAsync(offsets, completionHandler);
+      return;
+    }
     this.submitTask((consumer, future) -> {
 
       if (offsets == null) {
@@ -629,6 +1273,83 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
     }, completionHandler);
   }
 
+  // The requests made until the flush task runs on the consumer thread, e.g. during a poll, are coalesced
+  private void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>> completionHandler) {
+    boolean flush;
+    synchronized (this.commitLock) {
+      flush = this.pendingCommits == null;
+      if (flush) {
+        this.pendingCommits = new PendingCommits();
+      }
+      this.pendingCommits.add(offsets, completionHandler);
+    }
+    if (flush) {
+      this.submitTask((consumer, future) -> this.flushCommits(consumer), null);
+    }
+  }
+
+  // Runs on the consumer thread
+  private void flushCommits(Consumer<K, V> consumer) {
+    PendingCommits commits;
+    synchronized (this.commitLock) {
+      commits = this.pendingCommits;
+      this.pendingCommits = null;
+    }
+    OffsetCommitCallback callback = (offsets, err) -> {
+      this.asyncCommitsInFlight--;
+      commits.completed(err);
+    };
+    // Prevents the completion until all the commits are issued, the callback can be invoked by commitAsync
+    commits.remaining = 1;
+    Throwable failure = null;
+    try {
+      if (commits.all) {
+        consumer.commitAsync(callback);
+        commits.remaining++;
+        this.asyncCommitsInFlight++;
+      }
+      if (!commits.merged.isEmpty()) {
+        consumer.commitAsync(commits.merged, callback);
+        commits.remaining++;
+        this.asyncCommitsInFlight++;
+      }
+    } catch (Exception e) {
+      failure = e;
+    }
+    commits.completed(failure);
+    this.watchCommits();
+  }
+
+  // Runs on the consumer thread, the callbacks of the asynchronous commits are only invoked by the consumer calls
+  // so when the stream is not polling, e.g. paused, they are triggered periodically until no commit is in flight
+  private void watchCommits() {
+    if (this.commitWatchdog || this.asyncCommitsInFlight <= 0 || this.closed.get()) {
+      return;
+    }
+    this.commitWatchdog = true;
+    long delay = Math.max(1L, this.pollTimeout.toMillis());
+    this.context.runOnContext(v -> this.context.owner().setTimer(delay, id -> {
+      if (!this.closed.get()) {
+        this.worker.submit(() -> {
+          this.commitWatchdog = false;
+          if (this.asyncCommitsInFlight > 0 && !this.closed.get()) {
+            try {
+              // Invokes the callbacks of the completed commits without committing anything
+              this.consumer.commitSync(Collections.emptyMap());
+            } catch (WakeupException ignore) {
+            } catch (Exception e) {
+              Handler<Throwable> exceptionHandler = this.exceptionHandler;
+              if (exceptionHandler != null) {
+                exceptionHandler.handle(e);
+              }
+            }
+            this.watchCommits();
+          }
+        });
+      }
+    }));
+  }
+
   @Override
   public KafkaReadStreamImpl<K, V> partitionsFor(String topic, Handler<AsyncResult<List<PartitionInfo>>> handler) {
 
@@ -657,11 +1378,70 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   @Override
   public KafkaReadStreamImpl<K, V> handler(Handler<ConsumerRecord<K, V>> handler) {
+    this.processedOffsets = null;
+    this.throttle = null;
     this.recordHandler = handler;
-    this.schedule(0);
+    this.schedule();
+    return this;
+  }
+
+  @Override
+  public KafkaReadStreamImpl<K, V> filter(Predicate<ConsumerRecord<K, V>> predicate) {
+    this.filter = predicate;
     return this;
   }
 
+  @Override
+  public KafkaReadStreamImpl<K, V> dispatchHandler(int lanes, boolean byKey, Handler<ConsumerRecord<K, V>> handler) {
+    if (lanes <= 0) {
+      throw new IllegalArgumentException("Invalid number of lanes " + lanes);
+    }
+    if (handler == null) {
+      return this.handler(null);
+    }
+    RecordDispatcher<K, V> dispatcher = new RecordDispatcher<>(this, this.context, lanes, byKey, handler);
+    this.handler(dispatcher::dispatch);
+    this.processedOffsets = dispatcher.offsets();
+    return this;
+  }
+
+  @Override
+  public KafkaReadStreamImpl<K, V> asyncHandler(int maxInFlight, Function<ConsumerRecord<K, V>, Future<Void>> handler) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("Invalid max in flight records " + maxInFlight);
+    }
+    if (handler == null) {
+      return this.handler(null);
+    }
+    AsyncRecordHandler<K, V> asyncHandler = new AsyncRecordHandler<>(this, this.context, maxInFlight, handler);
+    this.handler(asyncHandler::handle);
+    this.processedOffsets = asyncHandler.offsets();
+    return this;
+  }
+
+  @Override
+  public void throttle(Object owner) {
+    this.throttle = owner;
+  }
+
+  @Override
+  public void unthrottle(Object owner) {
+    if (this.throttle == owner) {
+      this.throttle = null;
+      this.schedule();
+    }
+  }
+
+  @Override
+  public void reportFailure(Throwable cause) {
+    Handler<Throwable> handler = this.exceptionHandler;
+    if (handler != null) {
+      handler.handle(cause);
+    } else {
+      ((ContextInternal) this.context).reportException(cause);
+    }
+  }
+
   @Override
   public KafkaReadStreamImpl<K, V> pause() {
     this.demand.set(0L);
@@ -687,7 +1467,7 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
       return val;
     });
     if (op > 0L) {
-      this.schedule(0);
+      this.schedule();
     }
     return this;
   }
@@ -699,7 +1479,7 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   private KafkaReadStreamImpl<K, V> startConsuming() {
     this.consuming.set(true);
-    this.schedule(0);
+    this.schedule();
     return this;
   }
 
@@ -722,6 +1502,10 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
         this.consumer.close();
         this.context.runOnContext(v -> {
           this.worker.shutdownNow();
+          if (this.workerPool != null) {
+            this.workerPool.release();
+            this.workerPool = null;
+          }
           if (completionHandler != null) {
             completionHandler.handle(Future.succeededFuture());
           }
@@ -869,6 +1653,7 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   public KafkaReadStream batchHandler(Handler<ConsumerRecords<K, V>> handler) {
     this.batchHandler = handler;
+    this.schedule();
     return this;
   }
 
@@ -878,6 +1663,74 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
     return this;
   }
 
+  @Override
+  public KafkaReadStream<K, V> recordsPerTick(int records) {
+    if (records <= 0) {
+      throw new IllegalArgumentException("Invalid records per tick " + records);
+    }
+    this.recordsPerTick = records;
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> tickDuration(Duration duration) {
+    if (duration != null && duration.isNegative()) {
+      throw new IllegalArgumentException("Invalid tick duration " + duration);
+    }
+    this.tickDurationNanos = duration == null ? 0L : duration.toNanos();
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> adaptiveTick(boolean adaptive) {
+    this.adaptiveTick = adaptive;
+    this.recordNanos = 0L;
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> prefetchRecords(int records) {
+    if (records < 0) {
+      throw new IllegalArgumentException("Invalid prefetch records " + records);
+    }
+    this.prefetchRecords = records;
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> prefetchBytes(long bytes) {
+    if (bytes < 0L) {
+      throw new IllegalArgumentException("Invalid prefetch bytes " + bytes);
+    }
+    this.prefetchBytes = bytes;
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> partitionWatermarks(int high, int low) {
+    if (high < 0 || low < 0 || (high > 0 && low >= high)) {
+      throw new IllegalArgumentException("Invalid partition watermarks " + high + "/" + low);
+    }
+    if (high == 0) {
+      this.clearBacklogs(new ArrayList<>(this.backlogs.keySet()));
+    }
+    this.highWatermark = high;
+    this.lowWatermark = low;
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> commitOnRevoke(boolean enabled) {
+    this.commitOnRevoke = enabled;
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> asyncCommit(boolean enabled) {
+    this.asyncCommit = enabled;
+    return this;
+  }
+
   @Override
   public void poll(final Duration timeout, final Handler<AsyncResult<ConsumerRecords<K, V>>> handler) {
     this.worker.submit(() -> {
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * A consumer record keeping the raw bytes of its key and value, deserialized on first access.
+ */
+class LazyConsumerRecord<K, V> extends ConsumerRecord<K, V> {
+
+  private final Deserializer<K> keyDeserializer;
+  private final Deserializer<V> valueDeserializer;
+  private byte[] rawKey;
+  private byte[] rawValue;
+  private K key;
+  private V value;
+
+  LazyConsumerRecord(ConsumerRecord<byte[], byte[]> raw, Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer) {
+    super(raw.topic(), raw.partition(), raw.offset(), raw.timestamp(), raw.timestampType(), null,
+      raw.serializedKeySize(), raw.serializedValueSize(), null, null, raw.headers(), raw.leaderEpoch());
+    this.keyDeserializer = keyDeserializer;
+    this.valueDeserializer = valueDeserializer;
+    this.rawKey = raw.key();
+    this.rawValue = raw.value();
+  }
+
+  @Override
+  public synchronized K key() {
+    if (rawKey != null) {
+      key = keyDeserializer.deserialize(topic(), headers(), rawKey);
+      rawKey = null;
+    }
+    return key;
+  }
+
+  @Override
+  public synchronized V value() {
+    if (rawValue != null) {
+      value = valueDeserializer.deserialize(topic(), headers(), rawValue);
+      rawValue = null;
+    }
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return "ConsumerRecord(topic = " + topic()
+      + ", partition = " + partition()
+      + ", offset = " + offset()
+      + ", key = " + key()
+      + ", value = " + value() + ")";
+  }
+}
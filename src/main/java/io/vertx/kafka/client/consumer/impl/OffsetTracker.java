@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks the offsets of the records processed out of order, per partition, to find the offsets
+ * which can be committed: the offset following the last record of the partition which was processed
+ * along with all the records before it, and no further than a record whose processing failed.
+ */
+class OffsetTracker {
+
+  /**
+   * The offsets of a partition, the records completed against a previous instance of a partition,
+   * e.g. before a seek, do not affect the new instance.
+   * <p>
+   * The offsets of the records not yet committable are kept in a ring buffer sliding as the oldest
+   * records complete, so tracking a record does not allocate.
+   */
+  static class Partition {
+
+    private long[] offsets = new long[16];
+    private boolean[] done = new boolean[16];
+    private int head;
+    private int size;
+    private long committable = -1L;
+    private long failed = -1L;
+
+    private synchronized void dispatched(long offset) {
+      if (size == offsets.length) {
+        grow();
+      }
+      int index = (head + size) & (offsets.length - 1);
+      offsets[index] = offset;
+      done[index] = false;
+      size++;
+    }
+
+    /**
+     * Mark the record with the given offset as processed.
+     *
+     * @param offset the record offset
+     */
+    synchronized void completed(long offset) {
+      int mask = offsets.length - 1;
+      // The offsets are dispatched in order
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        long value = offsets[(head + mid) & mask];
+        if (value < offset) {
+          low = mid + 1;
+        } else if (value > offset) {
+          high = mid - 1;
+        } else {
+          done[(head + mid) & mask] = true;
+          break;
+        }
+      }
+      while (size > 0 && done[head]) {
+        committable = offsets[head] + 1;
+        head = (head + 1) & mask;
+        size--;
+      }
+    }
+
+    /**
+     * Mark the record with the given offset as processed with a failure, the partition is not committable past this
+     * record anymore, until it is reset.
+     *
+     * @param offset the record offset
+     */
+    synchronized void failed(long offset) {
+      if (failed < 0L || offset < failed) {
+        failed = offset;
+      }
+      completed(offset);
+    }
+
+    private void grow() {
+      long[] newOffsets = new long[offsets.length * 2];
+      boolean[] newDone = new boolean[done.length * 2];
+      for (int i = 0; i < size; i++) {
+        int index = (head + i) & (offsets.length - 1);
+        newOffsets[i] = offsets[index];
+        newDone[i] = done[index];
+      }
+      offsets = newOffsets;
+      done = newDone;
+      head = 0;
+    }
+
+    private synchronized long committable() {
+      return failed >= 0L ? Math.min(committable, failed) : committable;
+    }
+
+    /**
+     * @return the offset of the first record not processed yet, {@code -1} when all the records are processed
+     */
+    private synchronized long firstPending() {
+      return size > 0 ? offsets[head] : -1L;
+    }
+
+    /**
+     * @return the offset the partition cannot be committed past, the first record failed or not processed yet,
+     *         {@code -1} when there is none
+     */
+    private synchronized long firstUncommittable() {
+      long first = firstPending();
+      return first >= 0L && failed >= 0L ? Math.min(first, failed) : Math.max(first, failed);
+    }
+  }
+
+  private final Map<TopicPartition, Partition> partitions = new HashMap<>();
+
+  /**
+   * Track a record about to be processed, records of a partition must be dispatched in offset order.
+   *
+   * @param partition the record partition
+   * @param offset the record offset
+   * @return the partition offsets to complete the record against
+   */
+  synchronized Partition dispatched(TopicPartition partition, long offset) {
+    Partition offsets = partitions.computeIfAbsent(partition, key -> new Partition());
+    offsets.dispatched(offset);
+    return offsets;
+  }
+
+  /**
+   * @return the offsets which can be committed, for the partitions with processed records
+   */
+  synchronized Map<TopicPartition, OffsetAndMetadata> committable() {
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    partitions.forEach((partition, state) -> {
+      long committable = state.committable();
+      if (committable >= 0L) {
+        offsets.put(partition, new OffsetAndMetadata(committable));
+      }
+    });
+    return offsets;
+  }
+
+  /**
+   * @return whether some records of the partition are not processed yet
+   */
+  synchronized boolean pending(TopicPartition partition) {
+    Partition state = partitions.get(partition);
+    return state != null && state.firstPending() >= 0L;
+  }
+
+  /**
+   * @return the offset of the first record not processed yet, for the partitions with such records
+   */
+  synchronized Map<TopicPartition, Long> firstPending() {
+    Map<TopicPartition, Long> offsets = new HashMap<>();
+    partitions.forEach((partition, state) -> {
+      long first = state.firstPending();
+      if (first >= 0L) {
+        offsets.put(partition, first);
+      }
+    });
+    return offsets;
+  }
+
+  /**
+   * Merge the trackers of records polled once and processed by several handlers, e.g. the instances of a shared
+   * consumer: a partition can be committed up to its first record failed or not processed by one of the handlers, or
+   * up to the last processed record when all of them are processed.
+   *
+   * @param trackers the trackers
+   * @return the offsets which can be committed, for the partitions with processed records
+   */
+  static Map<TopicPartition, OffsetAndMetadata> committable(Collection<OffsetTracker> trackers) {
+    Map<TopicPartition, Long> processed = new HashMap<>();
+    Map<TopicPartition, Long> pending = new HashMap<>();
+    for (OffsetTracker tracker : trackers) {
+      synchronized (tracker) {
+        tracker.partitions.forEach((partition, state) -> {
+          long committable = state.committable();
+          if (committable >= 0L) {
+            processed.merge(partition, committable, Math::max);
+          }
+          long first = state.firstUncommittable();
+          if (first >= 0L) {
+            pending.merge(partition, first, Math::min);
+          }
+        });
+      }
+    }
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    processed.forEach((partition, committable) -> {
+      Long first = pending.get(partition);
+      offsets.put(partition, new OffsetAndMetadata(first != null ? Math.min(first, committable) : committable));
+    });
+    return offsets;
+  }
+
+  /**
+   * Stop tracking the given partitions, e.g. when they are revoked or seeked.
+   *
+   * @param partitions the partitions
+   */
+  synchronized void reset(Collection<TopicPartition> partitions) {
+    this.partitions.keySet().removeAll(partitions);
+  }
+
+  /**
+   * Stop tracking all the partitions.
+   */
+  synchronized void reset() {
+    this.partitions.clear();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.kafka.client.common.impl.SerialExecutor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches the records of a stream to lanes processing them concurrently on the Vert.x worker pool.
+ * <p>
+ * A record is routed to a lane by its partition or by the hash of its key, each lane processes its records
+ * one at a time in order, so the order of the records is preserved within a partition or a key.
+ * <p>
+ * The stream is throttled while the lanes are lagging behind, independently of the demand of the user. A record
+ * whose handler throws is reported to the stream exception handler, the processing goes on but its partition is not
+ * committed past it anymore, until the partition is sought or revoked.
+ */
+class RecordDispatcher<K, V> {
+
+  private static final int MAX_PENDING_PER_LANE = 128;
+
+  private final ThrottledStream stream;
+  private final Context context;
+  private final Executor[] lanes;
+  private final boolean byKey;
+  private final Handler<ConsumerRecord<K, V>> handler;
+  private final OffsetTracker offsets = new OffsetTracker();
+  private final int maxPending;
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicBoolean resuming = new AtomicBoolean();
+  private boolean paused; // Only accessed on the event loop
+
+  RecordDispatcher(ThrottledStream stream, Context context, int lanes, boolean byKey, Handler<ConsumerRecord<K, V>> handler) {
+    Executor executor = ((ContextInternal) context).workerPool().executor();
+    this.stream = stream;
+    this.context = context;
+    this.lanes = new Executor[lanes];
+    for (int i = 0; i < lanes; i++) {
+      this.lanes[i] = new SerialExecutor(executor);
+    }
+    this.byKey = byKey;
+    this.handler = handler;
+    this.maxPending = lanes * MAX_PENDING_PER_LANE;
+  }
+
+  /**
+   * @return the offsets tracked for the records processed by the lanes
+   */
+  OffsetTracker offsets() {
+    return offsets;
+  }
+
+  // Called on the event loop, the stream is throttled while the lanes are lagging behind
+  void dispatch(ConsumerRecord<K, V> record) {
+    dispatch(record, offsets.dispatched(new TopicPartition(record.topic(), record.partition()), record.offset()));
+  }
+
+  /**
+   * Dispatch a record already tracked by the caller, the record is completed against the given partition offsets.
+   */
+  void dispatch(ConsumerRecord<K, V> record, OffsetTracker.Partition partition) {
+    if (pending.incrementAndGet() >= maxPending && !paused) {
+      paused = true;
+      stream.throttle(this);
+    }
+    lanes[lane(record)].execute(() -> {
+      try {
+        handler.handle(record);
+        partition.completed(record.offset());
+      } catch (Throwable t) {
+        partition.failed(record.offset());
+        context.runOnContext(v -> stream.reportFailure(t));
+      } finally {
+        if (pending.decrementAndGet() <= maxPending / 2 && resuming.compareAndSet(false, true)) {
+          context.runOnContext(v -> resume());
+        }
+      }
+    });
+  }
+
+  // Called on the event loop, the lanes may have lagged behind again since the resume was requested
+  private void resume() {
+    resuming.set(false);
+    if (paused && pending.get() <= maxPending / 2) {
+      paused = false;
+      stream.unthrottle(this);
+    }
+  }
+
+  private int lane(ConsumerRecord<K, V> record) {
+    int hash;
+    Object key = record.key();
+    if (byKey && key != null) {
+      hash = key instanceof byte[] ? Arrays.hashCode((byte[]) key) : key.hashCode();
+    } else {
+      hash = 31 * record.topic().hashCode() + record.partition();
+    }
+    return (hash & Integer.MAX_VALUE) % lanes.length;
+  }
+}
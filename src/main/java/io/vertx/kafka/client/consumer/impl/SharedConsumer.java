@@ -0,0 +1,308 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.VertxInternal;
+import io.vertx.kafka.client.common.impl.CloseHandler;
+import io.vertx.kafka.client.consumer.KafkaConsumer;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * A read stream shared by the consumers created with the same name.
+ * <p>
+ * The stream is polled one batch at a time and each batch is fanned out to the members, every record to each member
+ * when broadcasting, otherwise the records of a partition to the member owning it. The next batch is fetched once
+ * every member has less than {@link #MAX_QUEUED_RECORDS} records queued, so the slowest member sets the pace.
+ * <p>
+ * Each member tracks the records it processes, the stream commits for each partition the offset below which every
+ * member has processed its records. The members subscribing to the same topics share the subscription of the stream.
+ */
+class SharedConsumer<K, V> {
+
+  static final int MAX_QUEUED_RECORDS = 1024;
+
+  private static final Map<String, SharedConsumer<?, ?>> sharedConsumers = new HashMap<>();
+
+  @SuppressWarnings("unchecked")
+  static <K, V> KafkaConsumer<K, V> create(Vertx vertx, String name, boolean broadcast, Supplier<KafkaReadStream<K, V>> streamFactory) {
+    synchronized (sharedConsumers) {
+      SharedConsumer<K, V> shared = (SharedConsumer<K, V>) sharedConsumers.computeIfAbsent(name, key -> {
+        SharedConsumer<K, V> s = new SharedConsumer<>(name, streamFactory.get(), broadcast);
+        s.closeHandler.registerCloseHook((VertxInternal) vertx);
+        return s;
+      });
+      if (shared.broadcast != broadcast) {
+        throw new IllegalStateException("Shared consumer " + name + " already exists with broadcast " + shared.broadcast);
+      }
+      SharedReadStream<K, V> member = new SharedReadStream<>(shared, vertx.getOrCreateContext());
+      shared.members.add(member);
+      return new KafkaConsumerImpl<>(member).registerCloseHook();
+    }
+  }
+
+  private final String name;
+  private final KafkaReadStream<K, V> stream;
+  private final boolean broadcast;
+  private final CloseHandler closeHandler;
+  private final List<SharedReadStream<K, V>> members = new CopyOnWriteArrayList<>();
+  private final Map<TopicPartition, SharedReadStream<K, V>> owners = new ConcurrentHashMap<>(); // Guarded by this
+  private final Set<TopicPartition> rewinding = ConcurrentHashMap.newKeySet(); // Partitions sought back, guarded by this
+  private final Set<SharedReadStream<K, V>> subscribers = new HashSet<>(); // Guarded by this
+  private Object subscription; // The topics or the pattern of the subscribers, guarded by this
+  private Future<Void> subscribed; // Guarded by this
+  private boolean fetching; // Guarded by this
+
+  private SharedConsumer(String name, KafkaReadStream<K, V> stream, boolean broadcast) {
+    this.name = name;
+    this.stream = stream;
+    this.broadcast = broadcast;
+    this.closeHandler = new CloseHandler((timeout, ar) -> stream.close(ar));
+    stream.pause();
+    stream.batchHandler(this::dispatch);
+    stream.exceptionHandler(this::reportFailure);
+    stream.partitionsRevokedHandler(this::revoked);
+    stream.partitionsAssignedHandler(this::assigned);
+    if (stream instanceof KafkaReadStreamImpl) {
+      // Commit on revoke the records processed by every member rather than the records fanned out to them
+      ((KafkaReadStreamImpl<K, V>) stream).revokedOffsets(this::committable);
+    }
+  }
+
+  KafkaReadStream<K, V> stream() {
+    return stream;
+  }
+
+  /**
+   * Fetch the next batch when no batch is being fetched and every member consuming records is ready for more.
+   */
+  void request() {
+    synchronized (this) {
+      if (fetching) {
+        return;
+      }
+      boolean consuming = false;
+      for (SharedReadStream<K, V> member : members) {
+        if (member.isConsuming()) {
+          if (member.queued() >= MAX_QUEUED_RECORDS) {
+            return;
+          }
+          consuming = true;
+        }
+      }
+      if (!consuming) {
+        return;
+      }
+      fetching = true;
+    }
+    stream.fetch(1);
+  }
+
+  // Called on the context of the shared stream
+  private void dispatch(ConsumerRecords<K, V> records) {
+    synchronized (this) {
+      fetching = false;
+      List<SharedReadStream<K, V>> targets = new ArrayList<>();
+      for (SharedReadStream<K, V> member : members) {
+        if (member.isConsuming()) {
+          targets.add(member);
+        }
+      }
+      if (targets.isEmpty()) {
+        // The handlers were unset since the batch was requested, keep the records for the members
+        targets.addAll(members);
+      }
+      if (targets.isEmpty()) {
+        return;
+      }
+      if (broadcast) {
+        for (SharedReadStream<K, V> target : targets) {
+          target.deliver(records);
+        }
+      } else {
+        Map<SharedReadStream<K, V>, Map<TopicPartition, List<ConsumerRecord<K, V>>>> routed = new LinkedHashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+          if (!rewinding.contains(partition)) {
+            routed.computeIfAbsent(owner(partition, targets), key -> new LinkedHashMap<>()).put(partition, records.records(partition));
+          }
+        }
+        routed.forEach((target, partitions) -> target.deliver(new ConsumerRecords<>(partitions)));
+      }
+    }
+    request();
+  }
+
+  /**
+   * The owner of a partition keeps it while some records of the partition are not processed, so the records of a
+   * partition are processed in order. Otherwise the partition moves to the target owning the fewest partitions, when
+   * its owner is not a target anymore or owns at least two partitions more than this target.
+   */
+  private SharedReadStream<K, V> owner(TopicPartition partition, List<SharedReadStream<K, V>> targets) {
+    SharedReadStream<K, V> owner = owners.get(partition);
+    if (owner != null && !owner.isClosed() && owner.offsets().pending(partition)) {
+      return owner;
+    }
+    Map<SharedReadStream<K, V>, Integer> counts = new HashMap<>();
+    for (SharedReadStream<K, V> target : targets) {
+      counts.put(target, 0);
+    }
+    for (SharedReadStream<K, V> o : owners.values()) {
+      counts.computeIfPresent(o, (key, count) -> count + 1);
+    }
+    SharedReadStream<K, V> least = targets.get(0);
+    for (SharedReadStream<K, V> target : targets) {
+      if (counts.get(target) < counts.get(least)) {
+        least = target;
+      }
+    }
+    Integer count = owner != null ? counts.get(owner) : null;
+    if (count != null && count - counts.get(least) <= 1) {
+      return owner;
+    }
+    owners.put(partition, least);
+    return least;
+  }
+
+  // Called on the context of the shared stream, before the partitions are reassigned
+  private void revoked(Set<TopicPartition> partitions) {
+    synchronized (this) {
+      owners.keySet().removeAll(partitions);
+    }
+    for (SharedReadStream<K, V> member : members) {
+      member.revoked(partitions);
+    }
+  }
+
+  // Called on the context of the shared stream
+  private void assigned(Set<TopicPartition> partitions) {
+    for (SharedReadStream<K, V> member : members) {
+      member.assigned(partitions);
+    }
+  }
+
+  private void reportFailure(Throwable cause) {
+    for (SharedReadStream<K, V> member : members) {
+      member.reportFailure(cause);
+    }
+  }
+
+  /**
+   * @return for each partition, the offset below which every member has processed its records
+   */
+  Map<TopicPartition, OffsetAndMetadata> committable() {
+    List<OffsetTracker> trackers = new ArrayList<>();
+    for (SharedReadStream<K, V> member : members) {
+      trackers.add(member.offsets());
+    }
+    return OffsetTracker.committable(trackers);
+  }
+
+  /**
+   * Subscribe a member to the given topics or pattern, the stream is only subscribed by the first member. A member
+   * subscribing to other topics fails while other members are subscribed.
+   *
+   * @param subscription the topics, or the pattern, compared to the subscription of the other members
+   * @param subscribe subscribes the stream
+   */
+  synchronized Future<Void> subscribe(SharedReadStream<K, V> member, Object subscription, Supplier<Future<Void>> subscribe) {
+    if (this.subscription != null && !this.subscription.equals(subscription)) {
+      for (SharedReadStream<K, V> subscriber : subscribers) {
+        if (subscriber != member) {
+          return Future.failedFuture(new IllegalStateException("Shared consumer " + name + " is already subscribed to " + this.subscription));
+        }
+      }
+    }
+    subscribers.add(member);
+    if (!subscription.equals(this.subscription)) {
+      this.subscription = subscription;
+      this.subscribed = subscribe.get();
+    }
+    return subscribed;
+  }
+
+  /**
+   * Unsubscribe a member, the stream is unsubscribed when no member is subscribed anymore.
+   */
+  Future<Void> unsubscribe(SharedReadStream<K, V> member) {
+    synchronized (this) {
+      if (subscribers.remove(member) ? !subscribers.isEmpty() : subscription != null) {
+        return Future.succeededFuture();
+      }
+      subscription = null;
+      subscribed = null;
+    }
+    return stream.unsubscribe();
+  }
+
+  /**
+   * Remove a member, the shared stream is closed when the last member leaves.
+   */
+  void leave(SharedReadStream<K, V> member, Handler<AsyncResult<Void>> completionHandler) {
+    synchronized (sharedConsumers) {
+      members.remove(member);
+      if (members.isEmpty()) {
+        sharedConsumers.remove(name);
+        closeHandler.close(completionHandler);
+        return;
+      }
+    }
+    Map<TopicPartition, Long> unprocessed = Collections.emptyMap();
+    boolean subscriber;
+    synchronized (this) {
+      subscriber = subscribers.contains(member);
+      owners.values().removeIf(owner -> owner == member);
+      if (!broadcast) {
+        // The records left by the member are fetched again for the next owners
+        unprocessed = member.offsets().firstPending();
+        rewinding.addAll(unprocessed.keySet());
+      }
+    }
+    unprocessed.forEach((partition, offset) -> stream.seek(partition, offset, ar -> {
+      synchronized (this) {
+        rewinding.remove(partition);
+      }
+      request();
+    }));
+    if (subscriber) {
+      this.unsubscribe(member);
+    }
+    // The member might have been holding back the next batch
+    request();
+    if (completionHandler != null) {
+      completionHandler.handle(Future.succeededFuture());
+    }
+  }
+}
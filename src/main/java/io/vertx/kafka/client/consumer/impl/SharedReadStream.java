@@ -0,0 +1,823 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A member of a {@link SharedConsumer}, delivering the records fanned out to it on its own context with its own
+ * demand, handlers and processed offsets. The other operations apply to the shared stream.
+ */
+class SharedReadStream<K, V> implements KafkaReadStream<K, V>, ThrottledStream {
+
+  /**
+   * Records of a single partition, completed against the partition offsets tracked when they were delivered.
+   */
+  private static class Run<K, V> {
+
+    private final TopicPartition partition;
+    private final List<ConsumerRecord<K, V>> records;
+    private final OffsetTracker.Partition offsets;
+
+    private Run(TopicPartition partition, List<ConsumerRecord<K, V>> records, OffsetTracker.Partition offsets) {
+      this.partition = partition;
+      this.records = records;
+      this.offsets = offsets;
+    }
+  }
+
+  private final SharedConsumer<K, V> shared;
+  private final Context context;
+  private final OffsetTracker offsets = new OffsetTracker();
+  private final AtomicLong demand = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicInteger queued = new AtomicInteger();
+  private final ArrayDeque<Run<K, V>> pending = new ArrayDeque<>(); // Accessed on context
+  private int pendingIndex; // Next record of the first pending run, accessed on context
+  private Handler<AsyncResult<ConsumerRecords<K, V>>> pollHandler; // Waiting for records, accessed on context
+  private long pollTimer; // Accessed on context
+  private volatile BiConsumer<ConsumerRecord<K, V>, OffsetTracker.Partition> recordHandler;
+  private volatile Handler<ConsumerRecords<K, V>> batchHandler;
+  private volatile Handler<Throwable> exceptionHandler;
+  private volatile Handler<Set<TopicPartition>> partitionsRevokedHandler;
+  private volatile Handler<Set<TopicPartition>> partitionsAssignedHandler;
+  private volatile Object throttle;
+  private volatile int recordsPerTick = 10;
+  private volatile boolean polling; // Set once the records are polled
+  private volatile boolean closed;
+
+  SharedReadStream(SharedConsumer<K, V> shared, Context context) {
+    this.shared = shared;
+    this.context = context;
+  }
+
+  boolean isConsuming() {
+    return !this.closed && (this.recordHandler != null || this.batchHandler != null || this.polling);
+  }
+
+  boolean isClosed() {
+    return this.closed;
+  }
+
+  int queued() {
+    return this.queued.get();
+  }
+
+  OffsetTracker offsets() {
+    return this.offsets;
+  }
+
+  // Called on the context of the shared stream, the records are tracked before the next batch is dispatched
+  void deliver(ConsumerRecords<K, V> records) {
+    List<Run<K, V>> runs = new ArrayList<>();
+    for (TopicPartition partition : records.partitions()) {
+      List<ConsumerRecord<K, V>> run = records.records(partition);
+      OffsetTracker.Partition offsets = null;
+      for (ConsumerRecord<K, V> record : run) {
+        offsets = this.offsets.dispatched(partition, record.offset());
+      }
+      runs.add(new Run<>(partition, run, offsets));
+    }
+    this.queued.addAndGet(records.count());
+    this.context.runOnContext(v -> {
+      if (this.closed) {
+        return;
+      }
+      Handler<ConsumerRecords<K, V>> batchHandler = this.batchHandler;
+      if (batchHandler != null) {
+        batchHandler.handle(records);
+      }
+      if (this.recordHandler != null || this.polling) {
+        this.pending.addAll(runs);
+        if (this.pollHandler != null) {
+          this.completePoll();
+        } else {
+          this.drain();
+        }
+      } else {
+        // Processed by the batch handler
+        for (Run<K, V> run : runs) {
+          this.complete(run, 0);
+        }
+        this.queued.addAndGet(-records.count());
+        this.shared.request();
+      }
+    });
+  }
+
+  private void complete(Run<K, V> run, int from) {
+    for (int i = from; i < run.records.size(); i++) {
+      run.offsets.completed(run.records.get(i).offset());
+    }
+  }
+
+  // Called on the context, drop the records queued for the record handler
+  private void clearPending() {
+    int remaining = -this.pendingIndex;
+    for (Run<K, V> run : this.pending) {
+      remaining += run.records.size();
+      this.complete(run, run == this.pending.peek() ? this.pendingIndex : 0);
+    }
+    this.pending.clear();
+    this.pendingIndex = 0;
+    this.queued.addAndGet(-remaining);
+  }
+
+  // Called on the context of the shared stream, before the partitions are reassigned
+  void revoked(Set<TopicPartition> partitions) {
+    this.offsets.reset(partitions);
+    this.context.runOnContext(v -> {
+      // The records of the revoked partitions are not committed anymore, and are fetched again by the next owner
+      int dropped = 0;
+      boolean first = true;
+      for (Iterator<Run<K, V>> it = this.pending.iterator(); it.hasNext(); first = false) {
+        Run<K, V> run = it.next();
+        if (partitions.contains(run.partition)) {
+          dropped += run.records.size() - (first ? this.pendingIndex : 0);
+          if (first) {
+            this.pendingIndex = 0;
+          }
+          it.remove();
+        }
+      }
+      this.queued.addAndGet(-dropped);
+      Handler<Set<TopicPartition>> handler = this.partitionsRevokedHandler;
+      if (handler != null && !this.closed) {
+        handler.handle(partitions);
+      }
+    });
+  }
+
+  // Called on the context of the shared stream
+  void assigned(Set<TopicPartition> partitions) {
+    Handler<Set<TopicPartition>> handler = this.partitionsAssignedHandler;
+    if (handler != null) {
+      this.context.runOnContext(v -> {
+        if (!this.closed) {
+          handler.handle(partitions);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void reportFailure(Throwable cause) {
+    Handler<Throwable> handler = this.exceptionHandler;
+    if (handler != null) {
+      this.context.runOnContext(v -> handler.handle(cause));
+    } else {
+      this.context.runOnContext(v -> ((ContextInternal) this.context).reportException(cause));
+    }
+  }
+
+  @Override
+  public void throttle(Object owner) {
+    this.throttle = owner;
+  }
+
+  @Override
+  public void unthrottle(Object owner) {
+    if (this.throttle == owner) {
+      this.throttle = null;
+      this.context.runOnContext(v -> this.drain());
+    }
+  }
+
+  // Called on the context, the records are delivered by chunks so other tasks can run
+  private void drain() {
+    BiConsumer<ConsumerRecord<K, V>, OffsetTracker.Partition> handler = this.recordHandler;
+    int count = 0;
+    while (handler != null && !this.closed && !this.pending.isEmpty() && count < this.recordsPerTick && this.throttle == null && this.claimDemand()) {
+      Run<K, V> run = this.pending.peek();
+      ConsumerRecord<K, V> next = run.records.get(this.pendingIndex++);
+      if (this.pendingIndex == run.records.size()) {
+        this.pending.poll();
+        this.pendingIndex = 0;
+      }
+      this.queued.decrementAndGet();
+      count++;
+      handler.accept(next, run.offsets);
+    }
+    if (count > 0) {
+      this.shared.request();
+    }
+    if (count == this.recordsPerTick && !this.pending.isEmpty()) {
+      this.context.runOnContext(v -> this.drain());
+    }
+  }
+
+  // Called on the context, the queued records are returned to the waiting poll
+  private void completePoll() {
+    Handler<AsyncResult<ConsumerRecords<K, V>>> handler = this.pollHandler;
+    this.pollHandler = null;
+    this.context.owner().cancelTimer(this.pollTimer);
+    Map<TopicPartition, List<ConsumerRecord<K, V>>> records = new LinkedHashMap<>();
+    int count = 0;
+    while (!this.pending.isEmpty()) {
+      Run<K, V> run = this.pending.poll();
+      List<ConsumerRecord<K, V>> list = run.records.subList(this.pendingIndex, run.records.size());
+      this.complete(run, this.pendingIndex);
+      this.pendingIndex = 0;
+      records.computeIfAbsent(run.partition, key -> new ArrayList<>()).addAll(list);
+      count += list.size();
+    }
+    this.queued.addAndGet(-count);
+    this.shared.request();
+    handler.handle(Future.succeededFuture(new ConsumerRecords<>(records)));
+  }
+
+  private boolean claimDemand() {
+    while (true) {
+      long v = this.demand.get();
+      if (v <= 0L) {
+        return false;
+      } else if (v == Long.MAX_VALUE || this.demand.compareAndSet(v, v - 1)) {
+        return true;
+      }
+    }
+  }
+
+  // The results of the shared stream are completed on its context, they are handed over to the context of this member
+  private <T> Future<T> onContext(Future<T> future) {
+    Promise<T> promise = ((ContextInternal) this.context).promise();
+    future.onComplete(promise);
+    return promise.future();
+  }
+
+  private <T> void onContext(Future<T> future, Handler<AsyncResult<T>> handler) {
+    Future<T> fut = this.onContext(future);
+    if (handler != null) {
+      fut.onComplete(handler);
+    }
+  }
+
+  @Override
+  public KafkaReadStream<K, V> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> handler(Handler<ConsumerRecord<K, V>> handler) {
+    return this.recordHandler(handler == null ? null : (record, offsets) -> {
+      try {
+        handler.handle(record);
+      } finally {
+        offsets.completed(record.offset());
+      }
+    });
+  }
+
+  private KafkaReadStream<K, V> recordHandler(BiConsumer<ConsumerRecord<K, V>, OffsetTracker.Partition> handler) {
+    this.recordHandler = handler;
+    this.throttle = null;
+    if (handler != null) {
+      this.context.runOnContext(v -> this.drain());
+    } else {
+      this.context.runOnContext(v -> {
+        if (this.recordHandler == null && !this.polling) {
+          this.clearPending();
+        }
+      });
+    }
+    this.shared.request();
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> batchHandler(Handler<ConsumerRecords<K, V>> handler) {
+    this.batchHandler = handler;
+    this.shared.request();
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> pause() {
+    this.demand.set(0L);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> resume() {
+    return this.fetch(Long.MAX_VALUE);
+  }
+
+  @Override
+  public KafkaReadStream<K, V> fetch(long amount) {
+    if (amount < 0) {
+      throw new IllegalArgumentException("Invalid claim " + amount);
+    }
+    long op = this.demand.updateAndGet(val -> {
+      val += amount;
+      if (val < 0L) {
+        val = Long.MAX_VALUE;
+      }
+      return val;
+    });
+    if (op > 0L) {
+      this.context.runOnContext(v -> this.drain());
+    }
+    return this;
+  }
+
+  @Override
+  public long demand() {
+    return this.demand.get();
+  }
+
+  @Override
+  public KafkaReadStream<K, V> endHandler(Handler<Void> endHandler) {
+    // Like the non shared stream, a consumer stream does not end
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> recordsPerTick(int records) {
+    if (records <= 0) {
+      throw new IllegalArgumentException("Invalid records per tick " + records);
+    }
+    this.recordsPerTick = records;
+    return this;
+  }
+
+  @Override
+  public Future<Void> close() {
+    Promise<Void> promise = Promise.promise();
+    this.close(promise);
+    return promise.future();
+  }
+
+  @Override
+  public void close(Handler<AsyncResult<Void>> completionHandler) {
+    if (this.closed) {
+      if (completionHandler != null) {
+        completionHandler.handle(Future.succeededFuture());
+      }
+      return;
+    }
+    this.closed = true;
+    Promise<Void> promise = ((ContextInternal) this.context).promise();
+    this.shared.leave(this, promise);
+    if (completionHandler != null) {
+      promise.future().onComplete(completionHandler);
+    }
+  }
+
+  @Override
+  public KafkaReadStream<K, V> dispatchHandler(int lanes, boolean byKey, Handler<ConsumerRecord<K, V>> handler) {
+    if (lanes <= 0) {
+      throw new IllegalArgumentException("Invalid number of lanes " + lanes);
+    }
+    if (handler == null) {
+      return this.handler(null);
+    }
+    RecordDispatcher<K, V> dispatcher = new RecordDispatcher<>(this, this.context, lanes, byKey, handler);
+    return this.recordHandler(dispatcher::dispatch);
+  }
+
+  @Override
+  public KafkaReadStream<K, V> asyncHandler(int maxInFlight, Function<ConsumerRecord<K, V>, Future<Void>> handler) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("Invalid max in flight records " + maxInFlight);
+    }
+    if (handler == null) {
+      return this.handler(null);
+    }
+    AsyncRecordHandler<K, V> asyncHandler = new AsyncRecordHandler<>(this, this.context, maxInFlight, handler);
+    return this.recordHandler(asyncHandler::handle);
+  }
+
+  @Override
+  public void poll(Duration timeout, Handler<AsyncResult<ConsumerRecords<K, V>>> handler) {
+    this.polling = true;
+    this.context.runOnContext(v -> {
+      if (this.closed) {
+        return;
+      }
+      Handler<AsyncResult<ConsumerRecords<K, V>>> previous = this.pollHandler;
+      if (previous != null) {
+        // A single poll waits for the records
+        this.context.owner().cancelTimer(this.pollTimer);
+        previous.handle(Future.succeededFuture(ConsumerRecords.empty()));
+      }
+      this.pollHandler = handler;
+      if (!this.pending.isEmpty()) {
+        this.completePoll();
+        return;
+      }
+      this.pollTimer = this.context.owner().setTimer(Math.max(1L, timeout.toMillis()), id -> {
+        if (this.pollHandler == handler) {
+          this.pollHandler = null;
+          handler.handle(Future.succeededFuture(ConsumerRecords.empty()));
+        }
+      });
+      this.shared.request();
+    });
+  }
+
+  @Override
+  public Future<ConsumerRecords<K, V>> poll(Duration timeout) {
+    Promise<ConsumerRecords<K, V>> promise = Promise.promise();
+    this.poll(timeout, promise);
+    return promise.future();
+  }
+
+  @Override
+  public void committed(TopicPartition topicPartition, Handler<AsyncResult<OffsetAndMetadata>> handler) {
+    this.onContext(this.shared.stream().committed(topicPartition), handler);
+  }
+
+  @Override
+  public Future<OffsetAndMetadata> committed(TopicPartition topicPartition) {
+    return this.onContext(this.shared.stream().committed(topicPartition));
+  }
+
+  @Override
+  public void committed(Set<TopicPartition> partitions, Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>> handler) {
+    this.onContext(this.shared.stream().committed(partitions), handler);
+  }
+
+  @Override
+  public Future<Map<TopicPartition, OffsetAndMetadata>> committed(Set<TopicPartition> partitions) {
+    return this.onContext(this.shared.stream().committed(partitions));
+  }
+
+  @Override
+  public Future<Void> pause(Set<TopicPartition> topicPartitions) {
+    return this.onContext(this.shared.stream().pause(topicPartitions));
+  }
+
+  @Override
+  public KafkaReadStream<K, V> pause(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler) {
+    this.onContext(this.shared.stream().pause(topicPartitions), completionHandler);
+    return this;
+  }
+
+  @Override
+  public void paused(Handler<AsyncResult<Set<TopicPartition>>> handler) {
+    this.onContext(this.shared.stream().paused(), handler);
+  }
+
+  @Override
+  public Future<Set<TopicPartition>> paused() {
+    return this.onContext(this.shared.stream().paused());
+  }
+
+  @Override
+  public Future<Void> resume(Set<TopicPartition> topicPartitions) {
+    return this.onContext(this.shared.stream().resume(topicPartitions));
+  }
+
+  @Override
+  public KafkaReadStream<K, V> resume(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler) {
+    this.onContext(this.shared.stream().resume(topicPartitions), completionHandler);
+    return this;
+  }
+
+  @Override
+  public Future<Void> seekToEnd(Set<TopicPartition> topicPartitions) {
+    return this.onContext(this.shared.stream().seekToEnd(topicPartitions));
+  }
+
+  @Override
+  public KafkaReadStream<K, V> seekToEnd(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler) {
+    this.onContext(this.shared.stream().seekToEnd(topicPartitions), completionHandler);
+    return this;
+  }
+
+  @Override
+  public Future<Void> seekToBeginning(Set<TopicPartition> topicPartitions) {
+    return this.onContext(this.shared.stream().seekToBeginning(topicPartitions));
+  }
+
+  @Override
+  public KafkaReadStream<K, V> seekToBeginning(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler) {
+    this.onContext(this.shared.stream().seekToBeginning(topicPartitions), completionHandler);
+    return this;
+  }
+
+  @Override
+  public Future<Void> seek(TopicPartition topicPartition, long offset) {
+    return this.onContext(this.shared.stream().seek(topicPartition, offset));
+  }
+
+  @Override
+  public KafkaReadStream<K, V> seek(TopicPartition topicPartition, long offset, Handler<AsyncResult<Void>> completionHandler) {
+    this.onContext(this.shared.stream().seek(topicPartition, offset), completionHandler);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> partitionsRevokedHandler(Handler<Set<TopicPartition>> handler) {
+    this.partitionsRevokedHandler = handler;
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> partitionsAssignedHandler(Handler<Set<TopicPartition>> handler) {
+    this.partitionsAssignedHandler = handler;
+    return this;
+  }
+
+  @Override
+  public Future<Void> subscribe(Set<String> topics) {
+    return this.onContext(this.shared.subscribe(this, new HashSet<>(topics), () -> this.shared.stream().subscribe(topics)));
+  }
+
+  @Override
+  public KafkaReadStream<K, V> subscribe(Set<String> topics, Handler<AsyncResult<Void>> completionHandler) {
+    Future<Void> fut = this.subscribe(topics);
+    if (completionHandler != null) {
+      fut.onComplete(completionHandler);
+    }
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> subscribe(Pattern pattern, Handler<AsyncResult<Void>> completionHandler) {
+    Future<Void> fut = this.subscribe(pattern);
+    if (completionHandler != null) {
+      fut.onComplete(completionHandler);
+    }
+    return this;
+  }
+
+  @Override
+  public Future<Void> subscribe(Pattern pattern) {
+    return this.onContext(this.shared.subscribe(this, pattern.pattern(), () -> this.shared.stream().subscribe(pattern)));
+  }
+
+  @Override
+  public Future<Void> unsubscribe() {
+    return this.onContext(this.shared.unsubscribe(this));
+  }
+
+  @Override
+  public KafkaReadStream<K, V> unsubscribe(Handler<AsyncResult<Void>> completionHandler) {
+    Future<Void> fut = this.unsubscribe();
+    if (completionHandler != null) {
+      fut.onComplete(completionHandler);
+    }
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> subscription(Handler<AsyncResult<Set<String>>> handler) {
+    this.onContext(this.shared.stream().subscription(), handler);
+    return this;
+  }
+
+  @Override
+  public Future<Set<String>> subscription() {
+    return this.onContext(this.shared.stream().subscription());
+  }
+
+  @Override
+  public Future<Void> assign(Set<TopicPartition> partitions) {
+    return this.onContext(this.shared.stream().assign(partitions));
+  }
+
+  @Override
+  public KafkaReadStream<K, V> assign(Set<TopicPartition> partitions, Handler<AsyncResult<Void>> completionHandler) {
+    this.onContext(this.shared.stream().assign(partitions), completionHandler);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> assignment(Handler<AsyncResult<Set<TopicPartition>>> handler) {
+    this.onContext(this.shared.stream().assignment(), handler);
+    return this;
+  }
+
+  @Override
+  public Future<Set<TopicPartition>> assignment() {
+    return this.onContext(this.shared.stream().assignment());
+  }
+
+  @Override
+  public KafkaReadStream<K, V> listTopics(Handler<AsyncResult<Map<String,List<PartitionInfo>>>> handler) {
+    this.onContext(this.shared.stream().listTopics(), handler);
+    return this;
+  }
+
+  @Override
+  public Future<Map<String,List<PartitionInfo>>> listTopics() {
+    return this.onContext(this.shared.stream().listTopics());
+  }
+
+  @Override
+  public Future<Map<TopicPartition, OffsetAndMetadata>> commit() {
+    Promise<Map<TopicPartition, OffsetAndMetadata>> promise = Promise.promise();
+    this.commit(promise);
+    return promise.future();
+  }
+
+  @Override
+  public void commit(Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>> completionHandler) {
+    // The records queued at the other members are not committed
+    Map<TopicPartition, OffsetAndMetadata> offsets = this.shared.committable();
+    if (offsets.isEmpty()) {
+      if (completionHandler != null) {
+        this.context.runOnContext(v -> completionHandler.handle(Future.succeededFuture(offsets)));
+      }
+    } else {
+      this.onContext(this.shared.stream().commit(offsets), completionHandler);
+    }
+  }
+
+  @Override
+  public Future<Map<TopicPartition, OffsetAndMetadata>> commit(Map<TopicPartition, OffsetAndMetadata> offsets) {
+    return this.onContext(this.shared.stream().commit(offsets));
+  }
+
+  @Override
+  public void commit(Map<TopicPartition, OffsetAndMetadata> offsets, Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>> completionHandler) {
+    this.onContext(this.shared.stream().commit(offsets), completionHandler);
+  }
+
+  @Override
+  public KafkaReadStream<K, V> partitionsFor(String topic, Handler<AsyncResult<List<PartitionInfo>>> handler) {
+    this.onContext(this.shared.stream().partitionsFor(topic), handler);
+    return this;
+  }
+
+  @Override
+  public Future<List<PartitionInfo>> partitionsFor(String topic) {
+    return this.onContext(this.shared.stream().partitionsFor(topic));
+  }
+
+  @Override
+  public void position(TopicPartition partition, Handler<AsyncResult<Long>> handler) {
+    this.onContext(this.shared.stream().position(partition), handler);
+  }
+
+  @Override
+  public Future<Long> position(TopicPartition partition) {
+    return this.onContext(this.shared.stream().position(partition));
+  }
+
+  @Override
+  public void offsetsForTimes(Map<TopicPartition, Long> topicPartitionTimestamps, Handler<AsyncResult<Map<TopicPartition, OffsetAndTimestamp>>> handler) {
+    this.onContext(this.shared.stream().offsetsForTimes(topicPartitionTimestamps), handler);
+  }
+
+  @Override
+  public Future<Map<TopicPartition, OffsetAndTimestamp>> offsetsForTimes(Map<TopicPartition, Long> topicPartitionTimestamps) {
+    return this.onContext(this.shared.stream().offsetsForTimes(topicPartitionTimestamps));
+  }
+
+  @Override
+  public void offsetsForTimes(TopicPartition topicPartition, long timestamp, Handler<AsyncResult<OffsetAndTimestamp>> handler) {
+    this.onContext(this.shared.stream().offsetsForTimes(topicPartition, timestamp), handler);
+  }
+
+  @Override
+  public Future<OffsetAndTimestamp> offsetsForTimes(TopicPartition topicPartition, long timestamp) {
+    return this.onContext(this.shared.stream().offsetsForTimes(topicPartition, timestamp));
+  }
+
+  @Override
+  public void beginningOffsets(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Map<TopicPartition, Long>>> handler) {
+    this.onContext(this.shared.stream().beginningOffsets(topicPartitions), handler);
+  }
+
+  @Override
+  public Future<Map<TopicPartition, Long>> beginningOffsets(Set<TopicPartition> topicPartitions) {
+    return this.onContext(this.shared.stream().beginningOffsets(topicPartitions));
+  }
+
+  @Override
+  public void beginningOffsets(TopicPartition topicPartition, Handler<AsyncResult<Long>> handler) {
+    this.onContext(this.shared.stream().beginningOffsets(topicPartition), handler);
+  }
+
+  @Override
+  public Future<Long> beginningOffsets(TopicPartition topicPartition) {
+    return this.onContext(this.shared.stream().beginningOffsets(topicPartition));
+  }
+
+  @Override
+  public void endOffsets(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Map<TopicPartition, Long>>> handler) {
+    this.onContext(this.shared.stream().endOffsets(topicPartitions), handler);
+  }
+
+  @Override
+  public Future<Map<TopicPartition, Long>> endOffsets(Set<TopicPartition> topicPartitions) {
+    return this.onContext(this.shared.stream().endOffsets(topicPartitions));
+  }
+
+  @Override
+  public void endOffsets(TopicPartition topicPartition, Handler<AsyncResult<Long>> handler) {
+    this.onContext(this.shared.stream().endOffsets(topicPartition), handler);
+  }
+
+  @Override
+  public Future<Long> endOffsets(TopicPartition topicPartition) {
+    return this.onContext(this.shared.stream().endOffsets(topicPartition));
+  }
+
+  @Override
+  public Consumer<K, V> unwrap() {
+    return this.shared.stream().unwrap();
+  }
+
+  @Override
+  public KafkaReadStream<K, V> pollTimeout(Duration timeout) {
+    this.shared.stream().pollTimeout(timeout);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> tickDuration(Duration duration) {
+    this.shared.stream().tickDuration(duration);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> adaptiveTick(boolean adaptive) {
+    this.shared.stream().adaptiveTick(adaptive);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> prefetchRecords(int records) {
+    this.shared.stream().prefetchRecords(records);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> prefetchBytes(long bytes) {
+    this.shared.stream().prefetchBytes(bytes);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> partitionWatermarks(int high, int low) {
+    this.shared.stream().partitionWatermarks(high, low);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> commitOnRevoke(boolean enabled) {
+    if (enabled && !(this.shared.stream() instanceof KafkaReadStreamImpl)) {
+      // The records fanned out to the members would be committed
+      throw new IllegalStateException("Commit on revoke is not supported by this shared consumer");
+    }
+    this.shared.stream().commitOnRevoke(enabled);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> asyncCommit(boolean enabled) {
+    this.shared.stream().asyncCommit(enabled);
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> filter(Predicate<ConsumerRecord<K, V>> predicate) {
+    this.shared.stream().filter(predicate);
+    return this;
+  }
+}
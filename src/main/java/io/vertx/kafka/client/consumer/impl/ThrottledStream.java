@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+/**
+ * A stream delivering its records to a {@link RecordDispatcher} or an {@link AsyncRecordHandler}, which hold back the
+ * delivery while their processing lags behind without changing the demand of the user.
+ */
+interface ThrottledStream {
+
+  /**
+   * Stop delivering records until {@link #unthrottle(Object)} is called by the same owner. Called on the event loop.
+   */
+  void throttle(Object owner);
+
+  /**
+   * Deliver the records again, unless the stream has been throttled by another owner since. Called on the event loop.
+   */
+  void unthrottle(Object owner);
+
+  /**
+   * Report a failure of the record processing. Called on the event loop.
+   */
+  void reportFailure(Throwable cause);
+}
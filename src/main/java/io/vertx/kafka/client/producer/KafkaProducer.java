@@ -20,6 +20,7 @@ import io.vertx.codegen.annotations.Fluent;
 import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
@@ -351,6 +352,30 @@ public interface KafkaProducer<K, V> extends WriteStream<KafkaProducerRecord<K,
   @Fluent
   KafkaProducer<K, V> send(KafkaProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler);
 
+  /**
+   * Asynchronously write a batch of records to topics.
+   * <p>
+   * The records are handed to the producer in order, directly from the caller thread when the metadata of their topics
+   * is known, otherwise with a single blocking call. The whole batch is accounted in the write queue until all its
+   * records are acknowledged, and it is rejected with an {@link IllegalStateException} when the write queue is full.
+   *
+   * @param records  records to write
+   * @return a {@code CompositeFuture} completed when all the records are acknowledged, its {@link CompositeFuture#resultAt(int)}
+   *         and {@link CompositeFuture#cause(int)} give the {@link RecordMetadata} or the failure of each record, it is failed
+   *         when a record could not be written
+   */
+  CompositeFuture sendBatch(List<KafkaProducerRecord<K, V>> records);
+
+  /**
+   * Like {@link #sendBatch(List)} but with a completion handler
+   *
+   * @param records  records to write
+   * @param handler handler called on operation completed
+   * @return  current KafkaProducer instance
+   */
+  @Fluent
+  KafkaProducer<K, V> sendBatch(List<KafkaProducerRecord<K, V>> records, Handler<AsyncResult<CompositeFuture>> handler);
+
   /**
    * Get the partition metadata for the give topic.
    *
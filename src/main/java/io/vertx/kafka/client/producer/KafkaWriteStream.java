@@ -19,6 +19,7 @@ package io.vertx.kafka.client.producer;
 import io.vertx.codegen.annotations.Fluent;
 import io.vertx.codegen.annotations.Nullable;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
@@ -197,10 +198,30 @@ public interface KafkaWriteStream<K, V> extends WriteStream<ProducerRecord<K, V>
     return new KafkaWriteStreamImpl<>(vertx, producer, new KafkaClientOptions());
   }
 
+  /**
+   * Create a new KafkaWriteStream instance
+   *
+   * @param vertx Vert.x instance to use
+   * @param producer  native Kafka producer instance
+   * @param options  Kafka client options
+   * @return an instance of the KafkaWriteStream
+   */
+  static <K, V> KafkaWriteStream<K, V> create(Vertx vertx, Producer<K, V> producer, KafkaClientOptions options) {
+    return new KafkaWriteStreamImpl<>(vertx, producer, options);
+  }
+
   @Fluent
   @Override
   KafkaWriteStream<K, V> exceptionHandler(Handler<Throwable> handler);
 
+  /**
+   * Set the maximum size of the write queue, in bytes. The size of a pending record is the serialized size of its key,
+   * value and headers: it is exact for {@code byte[]}, {@code String} and {@code Buffer} keys and values, and estimated
+   * from the sizes reported by the producer for other types.
+   *
+   * @param i the max size in bytes
+   * @return a reference to this, so the API can be used fluently
+   */
   @Fluent
   @Override
   KafkaWriteStream<K, V> setWriteQueueMaxSize(int i);
@@ -278,6 +299,30 @@ public interface KafkaWriteStream<K, V> extends WriteStream<ProducerRecord<K, V>
    */
   KafkaWriteStream<K, V> send(ProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler);
 
+  /**
+   * Asynchronously write a batch of records to topics.
+   * <p>
+   * The records are handed to the producer in order, directly from the caller thread when the metadata of their topics
+   * is known, otherwise with a single blocking call. The whole batch is accounted in the write queue until all its
+   * records are acknowledged, and it is rejected with an {@link IllegalStateException} when the write queue is full.
+   *
+   * @param records  records to write
+   * @return a {@code CompositeFuture} completed when all the records are acknowledged, its {@link CompositeFuture#resultAt(int)}
+   *         and {@link CompositeFuture#cause(int)} give the record metadata or the failure of each record, it is failed
+   *         when a record could not be written
+   */
+  CompositeFuture sendBatch(List<ProducerRecord<K, V>> records);
+
+  /**
+   * Like {@link #sendBatch(List)} but with a completion handler
+   *
+   * @param records  records to write
+   * @param handler handler called on operation completed
+   * @return  current KafkaWriteStream instance
+   */
+  @Fluent
+  KafkaWriteStream<K, V> sendBatch(List<ProducerRecord<K, V>> records, Handler<AsyncResult<CompositeFuture>> handler);
+
   /**
    * Get the partition metadata for the give topic.
    *
@@ -17,6 +17,7 @@
 package io.vertx.kafka.client.producer.impl;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
@@ -219,6 +220,37 @@ public class KafkaProducerImpl<K, V> implements KafkaProducer<K, V> {
     return this;
   }
 
+  @Override
+  @SuppressWarnings("rawtypes")
+  public CompositeFuture sendBatch(List<KafkaProducerRecord<K, V>> records) {
+    List<org.apache.kafka.clients.producer.ProducerRecord<K, V>> list = new ArrayList<>(records.size());
+    List<Future> futures = new ArrayList<>(records.size());
+    List<Promise<RecordMetadata>> promises = new ArrayList<>(records.size());
+    for (KafkaProducerRecord<K, V> record : records) {
+      list.add(record.record());
+      Promise<RecordMetadata> promise = Promise.promise();
+      promises.add(promise);
+      futures.add(promise.future());
+    }
+    CompositeFuture sent = this.stream.sendBatch(list);
+    sent.onComplete(ar -> {
+      for (int i = 0; i < promises.size(); i++) {
+        if (sent.succeeded(i)) {
+          promises.get(i).complete(Helper.from(sent.<org.apache.kafka.clients.producer.RecordMetadata>resultAt(i)));
+        } else {
+          promises.get(i).fail(sent.cause(i));
+        }
+      }
+    });
+    return CompositeFuture.join(futures);
+  }
+
+  @Override
+  public KafkaProducer<K, V> sendBatch(List<KafkaProducerRecord<K, V>> records, Handler<AsyncResult<CompositeFuture>> handler) {
+    this.sendBatch(records).onComplete(handler);
+    return this;
+  }
+
   @Override
   public Future<List<PartitionInfo>> partitionsFor(String topic) {
     return this.stream.partitionsFor(topic).map(list ->
@@ -17,14 +17,15 @@
 package io.vertx.kafka.client.producer.impl;
 
 import io.vertx.core.buffer.Buffer;
+import io.vertx.kafka.client.common.impl.Helper;
 import io.vertx.kafka.client.producer.KafkaHeader;
 import io.vertx.kafka.client.producer.KafkaProducerRecord;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.internals.RecordHeader;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Vert.x Kafka producer record implementation
@@ -162,12 +163,19 @@ public class KafkaProducerRecordImpl<K, V> implements KafkaProducerRecord<K, V>
         timestamp,
         key,
         value,
-        headers.stream()
-          .map(header -> new RecordHeader(header.key(), header.value().getBytes()))
-          .collect(Collectors.toList()));
+        nativeHeaders());
     }
   }
 
+  // The header values are not copied when possible
+  private List<Header> nativeHeaders() {
+    List<Header> list = new ArrayList<>(headers.size());
+    for (KafkaHeader header : headers) {
+      list.add(new RecordHeader(header.key(), Helper.toBytes(header.value())));
+    }
+    return list;
+  }
+
   @Override
   public List<KafkaHeader> headers() {
     return headers;
@@ -17,50 +17,164 @@
 package io.vertx.kafka.client.producer.impl;
 
 import io.vertx.core.AsyncResult;
-import io.vertx.core.Context;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.impl.ContextInternal;
 import io.vertx.kafka.client.common.KafkaClientOptions;
+import io.vertx.kafka.client.common.impl.VirtualThreads;
 import io.vertx.kafka.client.common.tracing.ProducerTracer;
 import io.vertx.kafka.client.producer.KafkaWriteStream;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.common.utils.Utils;
 
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Kafka write stream implementation
  */
 public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
 
-  private long maxSize = DEFAULT_MAX_SIZE;
-  private long pending;
+  /**
+   * How long the metadata of a topic is considered available after an acknowledged send, well below
+   * the native producer {@code metadata.max.idle.ms} default.
+   */
+  private static final long METADATA_MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  /**
+   * Initial serialized size estimate of the keys and values whose size cannot be known before serialization,
+   * e.g. JSON, it is then adjusted with the sizes reported by the producer.
+   */
+  private static final int DEFAULT_SIZE_ESTIMATE = 64;
+
+  /**
+   * The native producer {@code buffer.memory} default, bounding the records sent directly when the producer does not
+   * report its available buffer memory.
+   */
+  private static final long DEFAULT_BUFFER_MEMORY = 32 * 1024 * 1024L;
+
+  /**
+   * The buffer memory kept available when sending directly, so a direct send does not block for a batch to be freed.
+   */
+  private static final long BUFFER_MEMORY_RESERVE = 1024 * 1024L;
+
+  private volatile long maxSize = DEFAULT_MAX_SIZE;
+  private final AtomicLong pending = new AtomicLong();
   private final Producer<K, V> producer;
-  private Handler<Void> drainHandler;
-  private Handler<Throwable> exceptionHandler;
-  private final Context context;
+  private final AtomicReference<Handler<Void>> drainHandler = new AtomicReference<>();
+  private volatile Handler<Throwable> exceptionHandler;
+  private final ContextInternal context;
   private final ProducerTracer tracer;
+  private final ExecutorService worker;
+  private final Map<String, Long> topicsWithMetadata = new ConcurrentHashMap<>();
+  private final AtomicInteger blockingCalls = new AtomicInteger();
+  private volatile Metric bufferAvailableBytes;
+  private volatile boolean bufferMetricLookedUp;
+  private volatile int keySizeEstimate = DEFAULT_SIZE_ESTIMATE;
+  private volatile int valueSizeEstimate = DEFAULT_SIZE_ESTIMATE;
 
   public KafkaWriteStreamImpl(Vertx vertx, Producer<K, V> producer, KafkaClientOptions options) {
     this.producer = producer;
     ContextInternal ctxInt = (ContextInternal) vertx.getOrCreateContext();
     this.context = ctxInt;
     this.tracer = ProducerTracer.create(ctxInt.tracer(), options);
+    this.worker = options.isUseVirtualThreads() ? VirtualThreads.createWorker() : null;
   }
 
-  private int len(Object value) {
-    if (value instanceof byte[]) {
-      return ((byte[])value).length;
-    } else if (value instanceof String) {
-      return ((String)value).length();
+  /**
+   * Estimate the memory used by a record until it is acknowledged, the serialized size of its key, value and headers.
+   */
+  private int size(ProducerRecord<K, V> record) {
+    int keySize = knownSize(record.key());
+    int valueSize = knownSize(record.value());
+    int size = (keySize < 0 ? this.keySizeEstimate : keySize) + (valueSize < 0 ? this.valueSizeEstimate : valueSize);
+    for (Header header : record.headers()) {
+      size += Utils.utf8Length(header.key());
+      if (header.value() != null) {
+        size += header.value().length;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return the serialized size of the object when it can be known before serialization, {@code -1} otherwise
+   */
+  private static int knownSize(Object o) {
+    if (o == null) {
+      return 0;
+    } else if (o instanceof byte[]) {
+      return ((byte[]) o).length;
+    } else if (o instanceof String) {
+      return Utils.utf8Length((String) o);
+    } else if (o instanceof Buffer) {
+      return ((Buffer) o).length();
+    } else if (o instanceof ByteBuffer) {
+      return ((ByteBuffer) o).remaining();
+    } else if (o instanceof Bytes) {
+      return ((Bytes) o).get().length;
     } else {
-      return 1;
+      return -1;
+    }
+  }
+
+  /**
+   * Update the size estimates of the other types with the serialized sizes reported by the producer.
+   */
+  private void updateSizeEstimates(ProducerRecord<K, V> record, RecordMetadata metadata) {
+    if (metadata.serializedKeySize() >= 0 && knownSize(record.key()) < 0) {
+      this.keySizeEstimate = (this.keySizeEstimate * 7 + metadata.serializedKeySize()) / 8;
+    }
+    if (metadata.serializedValueSize() >= 0 && knownSize(record.value()) < 0) {
+      this.valueSizeEstimate = (this.valueSizeEstimate * 7 + metadata.serializedValueSize()) / 8;
+    }
+  }
+
+  /**
+   * Called from any thread when a record is not pending anymore. The write queue is updated without locking, the
+   * exception and drain handlers are then called, if needed, with a single hop on the stream context.
+   */
+  private void completed(int size, Throwable err) {
+    long remaining = this.pending.addAndGet(-size);
+    Handler<Void> drainHandler = null;
+    if (remaining < this.maxSize / 2) {
+      Handler<Void> handler = this.drainHandler.get();
+      if (handler != null && this.drainHandler.compareAndSet(handler, null)) {
+        drainHandler = handler;
+      }
+    }
+    // if exception happens, no record written
+    Handler<Throwable> exceptionHandler = err != null ? this.exceptionHandler : null;
+    if (drainHandler != null || exceptionHandler != null) {
+      Handler<Void> handler = drainHandler;
+      this.context.runOnContext(v -> {
+        if (exceptionHandler != null) {
+          exceptionHandler.handle(err);
+        }
+        if (handler != null) {
+          handler.handle(null);
+        }
+      });
     }
   }
 
@@ -69,65 +183,257 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
     ContextInternal ctx = (ContextInternal) context.owner().getOrCreateContext();
     ProducerTracer.StartedSpan startedSpan = this.tracer == null ? null : this.tracer.prepareSendMessage(ctx, record);
     Promise<RecordMetadata> trampolineProm = ctx.promise();
-    int len = this.len(record.value());
-    this.pending += len;
-    this.context.<RecordMetadata>executeBlocking(prom -> {
-      try {
-        this.producer.send(record, (metadata, err) -> {
-
-          // callback from IO thread
-          this.context.runOnContext(v1 -> {
-            synchronized (KafkaWriteStreamImpl.this) {
-
-              // if exception happens, no record written
-              if (err != null) {
-
-                if (this.exceptionHandler != null) {
-                  Handler<Throwable> exceptionHandler = this.exceptionHandler;
-                  this.context.runOnContext(v2 -> exceptionHandler.handle(err));
-                }
-              }
-
-              long lowWaterMark = this.maxSize / 2;
-              this.pending -= len;
-              if (this.pending < lowWaterMark && this.drainHandler != null) {
-                Handler<Void> drainHandler = this.drainHandler;
-                this.drainHandler = null;
-                this.context.runOnContext(drainHandler);
-              }
+    int len = this.size(record);
+    boolean direct = this.canSendDirectly(record.topic()) && this.hasBufferMemory(len);
+    this.pending.addAndGet(len);
+    if (direct) {
+      this.doSend(record, len, ctx, startedSpan, trampolineProm);
+    } else {
+      this.blockingCalls.incrementAndGet();
+      this.<RecordMetadata>executeBlocking(prom -> {
+        // complete once the send has returned, so the next records can be sent directly
+        Promise<RecordMetadata> sent = Promise.promise();
+        try {
+          this.doSend(record, len, ctx, startedSpan, sent);
+        } finally {
+          this.blockingCalls.decrementAndGet();
+        }
+        sent.future().onComplete(prom);
+      }).onComplete(trampolineProm);
+    }
+    return trampolineProm.future(); // Trampoline on caller context
+  }
+
+  /**
+   * The native {@code send} only blocks to fetch the metadata of the topic or when its {@code buffer.memory}
+   * is exhausted. A record can be sent directly from the caller thread when a record of the same topic was recently
+   * acknowledged, the write queue is not full and no previous send or transaction call waits on the worker, which
+   * would be overtaken.
+   */
+  private boolean canSendDirectly(String topic) {
+    Long acknowledged = this.topicsWithMetadata.get(topic);
+    return acknowledged != null
+      && System.nanoTime() - acknowledged < METADATA_MAX_AGE_NANOS
+      && this.blockingCalls.get() == 0
+      && !this.writeQueueFull();
+  }
+
+  /**
+   * @return whether the native producer has enough {@code buffer.memory} available for {@code len} more bytes, using
+   *         its {@code buffer-available-bytes} metric or, when not reported, the bytes in flight of this stream
+   */
+  private boolean hasBufferMemory(long len) {
+    Metric metric = this.bufferAvailableBytes;
+    if (metric == null && !this.bufferMetricLookedUp) {
+      for (Map.Entry<MetricName, ? extends Metric> entry : this.producer.metrics().entrySet()) {
+        MetricName name = entry.getKey();
+        if ("buffer-available-bytes".equals(name.name()) && "producer-metrics".equals(name.group())) {
+          metric = entry.getValue();
+          this.bufferAvailableBytes = metric;
+          break;
+        }
+      }
+      this.bufferMetricLookedUp = true;
+    }
+    if (metric != null) {
+      Object available = metric.metricValue();
+      if (available instanceof Number) {
+        return ((Number) available).doubleValue() - len >= BUFFER_MEMORY_RESERVE;
+      }
+    }
+    return this.pending.get() + len <= DEFAULT_BUFFER_MEMORY - BUFFER_MEMORY_RESERVE;
+  }
+
+  private void acknowledged(String topic) {
+    long now = System.nanoTime();
+    Long acknowledged = this.topicsWithMetadata.get(topic);
+    // avoid writing the map on every acknowledgement
+    if (acknowledged == null || now - acknowledged > METADATA_MAX_AGE_NANOS / 60) {
+      this.topicsWithMetadata.put(topic, now);
+    }
+  }
+
+  private void doSend(ProducerRecord<K, V> record, int len, ContextInternal ctx, ProducerTracer.StartedSpan startedSpan, Promise<RecordMetadata> prom) {
+    try {
+      this.producer.send(record, (metadata, err) -> {
+
+        // callback from IO thread
+        if (err != null) {
+          this.topicsWithMetadata.remove(record.topic());
+        } else {
+          this.acknowledged(record.topic());
+          this.updateSizeEstimates(record, metadata);
+        }
+
+        this.completed(len, err);
+
+        if (err != null) {
+          if (startedSpan != null) {
+            startedSpan.fail(ctx, err);
+          }
+          prom.fail(err);
+        } else {
+          if (startedSpan != null) {
+            startedSpan.finish(ctx);
+          }
+          prom.complete(metadata);
+        }
+      });
+    } catch (Throwable e) {
+      this.topicsWithMetadata.remove(record.topic());
+      this.completed(len, e);
+      if (startedSpan != null) {
+        startedSpan.fail(ctx, e);
+      }
+      prom.fail(e);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public CompositeFuture sendBatch(List<ProducerRecord<K, V>> records) {
+    ContextInternal ctx = (ContextInternal) context.owner().getOrCreateContext();
+    Batch batch = new Batch(ctx, records);
+    List<Future> futures = new ArrayList<>(batch.promises.length);
+    for (Promise<RecordMetadata> promise : batch.promises) {
+      futures.add(promise.future());
+    }
+    CompositeFuture result = CompositeFuture.join(futures);
+    if (records.isEmpty()) {
+      return result;
+    }
+    if (this.writeQueueFull()) {
+      IllegalStateException err = new IllegalStateException("Write queue full");
+      ctx.runOnContext(v -> {
+        for (Promise<RecordMetadata> promise : batch.promises) {
+          promise.fail(err);
+        }
+      });
+      return result;
+    }
+    boolean direct = this.blockingCalls.get() == 0;
+    for (int i = 0; i < batch.sizes.length; i++) {
+      ProducerRecord<K, V> record = records.get(i);
+      batch.sizes[i] = this.size(record);
+      batch.size += batch.sizes[i];
+      if (this.tracer != null) {
+        batch.spans[i] = this.tracer.prepareSendMessage(ctx, record);
+      }
+      direct &= this.canSendDirectly(record.topic());
+    }
+    direct &= this.hasBufferMemory(batch.size);
+    this.pending.addAndGet(batch.size);
+    if (direct) {
+      batch.send();
+    } else {
+      this.blockingCalls.incrementAndGet();
+      this.<Void>executeBlocking(prom -> {
+        try {
+          batch.send();
+        } finally {
+          this.blockingCalls.decrementAndGet();
+        }
+        prom.complete();
+      });
+    }
+    return result;
+  }
+
+  @Override
+  public KafkaWriteStreamImpl<K, V> sendBatch(List<ProducerRecord<K, V>> records, Handler<AsyncResult<CompositeFuture>> handler) {
+    this.sendBatch(records).onComplete(handler);
+    return this;
+  }
+
+  /**
+   * A batch of records sent together, the write queue and the caller are updated once all the records are completed.
+   */
+  private class Batch {
+
+    private final ContextInternal ctx;
+    private final List<ProducerRecord<K, V>> records;
+    private final Promise<RecordMetadata>[] promises;
+    private final ProducerTracer.StartedSpan[] spans;
+    private final int[] sizes;
+    private final RecordMetadata[] metadata;
+    private final Throwable[] failures;
+    private final AtomicInteger remaining;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    Batch(ContextInternal ctx, List<ProducerRecord<K, V>> records) {
+      int count = records.size();
+      this.ctx = ctx;
+      this.records = records;
+      this.promises = new Promise[count];
+      for (int i = 0; i < count; i++) {
+        this.promises[i] = Promise.promise();
+      }
+      this.spans = new ProducerTracer.StartedSpan[count];
+      this.sizes = new int[count];
+      this.metadata = new RecordMetadata[count];
+      this.failures = new Throwable[count];
+      this.remaining = new AtomicInteger(count);
+    }
+
+    void send() {
+      for (int i = 0; i < records.size(); i++) {
+        ProducerRecord<K, V> record = records.get(i);
+        int index = i;
+        try {
+          producer.send(record, (md, err) -> {
+            // callback from IO thread
+            if (err != null) {
+              topicsWithMetadata.remove(record.topic());
+            } else {
+              acknowledged(record.topic());
+              updateSizeEstimates(record, md);
             }
+            completed(index, md, err);
           });
+        } catch (Throwable e) {
+          topicsWithMetadata.remove(record.topic());
+          completed(index, null, e);
+        }
+      }
+    }
 
-          if (err != null) {
-            if (startedSpan != null) {
-              startedSpan.fail(ctx, err);
-            }
-            prom.fail(err);
-          } else {
-            if (startedSpan != null) {
-              startedSpan.finish(ctx);
+    private void completed(int index, RecordMetadata md, Throwable err) {
+      ProducerTracer.StartedSpan span = spans[index];
+      if (span != null) {
+        if (err != null) {
+          span.fail(ctx, err);
+        } else {
+          span.finish(ctx);
+        }
+      }
+      metadata[index] = md;
+      failures[index] = err;
+      if (remaining.decrementAndGet() == 0) {
+        Throwable failure = null;
+        for (Throwable t : failures) {
+          if (t != null) {
+            failure = t;
+            break;
+          }
+        }
+        KafkaWriteStreamImpl.this.completed(size, failure);
+        // a single hop to complete the records on the caller context
+        ctx.runOnContext(v -> {
+          for (int i = 0; i < promises.length; i++) {
+            if (failures[i] != null) {
+              promises[i].fail(failures[i]);
+            } else {
+              promises[i].complete(metadata[i]);
             }
-            prom.complete(metadata);
           }
         });
-      } catch (Throwable e) {
-        synchronized (KafkaWriteStreamImpl.this) {
-          if (this.exceptionHandler != null) {
-            Handler<Throwable> exceptionHandler = this.exceptionHandler;
-            this.context.runOnContext(v3 -> exceptionHandler.handle(e));
-          }
-        }
-        if (startedSpan != null) {
-          startedSpan.fail(ctx, e);
-        }
-        prom.fail(e);
       }
-    }).onComplete(trampolineProm);
-    return trampolineProm.future(); // Trampoline on caller context
+    }
   }
 
   @Override
-  public synchronized KafkaWriteStreamImpl<K, V> send(ProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler) {
+  public KafkaWriteStreamImpl<K, V> send(ProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler) {
     this.send(record).onComplete(handler);
     return this;
   }
@@ -149,13 +455,17 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
   }
 
   @Override
-  public synchronized boolean writeQueueFull() {
-    return (this.pending >= this.maxSize);
+  public boolean writeQueueFull() {
+    return (this.pending.get() >= this.maxSize);
   }
 
   @Override
-  public synchronized KafkaWriteStreamImpl<K, V> drainHandler(Handler<Void> handler) {
-    this.drainHandler = handler;
+  public KafkaWriteStreamImpl<K, V> drainHandler(Handler<Void> handler) {
+    this.drainHandler.set(handler);
+    // The last completions may have drained the queue before the handler was set
+    if (handler != null && this.pending.get() < this.maxSize / 2 && this.drainHandler.compareAndSet(handler, null)) {
+      this.context.runOnContext(v -> handler.handle(null));
+    }
     return this;
   }
 
@@ -226,7 +536,7 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
       trampolineProm.tryFail("Kafka connect timeout");
     });
 
-    this.context.<List<PartitionInfo>>executeBlocking(prom -> {
+    this.<List<PartitionInfo>>executeBlocking(prom -> {
       prom.complete(
         this.producer.partitionsFor(topic)
       );
@@ -245,7 +555,7 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
   public Future<Void> flush() {
     ContextInternal ctx = (ContextInternal) context.owner().getOrCreateContext();
     Promise<Void> trampolineProm = ctx.promise();
-    this.context.<Void>executeBlocking(prom -> {
+    this.<Void>executeBlocking(prom -> {
       this.producer.flush();
       prom.complete();
     }).onComplete(trampolineProm);
@@ -272,14 +582,14 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
   public Future<Void> close(long timeout) {
     ContextInternal ctx = (ContextInternal) context.owner().getOrCreateContext();
     Promise<Void> trampolineProm = ctx.promise();
-    this.context.executeBlocking(prom -> {
+    this.<Void>executeBlocking(prom -> {
       if (timeout > 0) {
         this.producer.close(Duration.ofMillis(timeout));
       } else {
         this.producer.close();
       }
       prom.complete();
-    }, trampolineProm);
+    }).onComplete(trampolineProm);
     return trampolineProm.future(); // Trampoline on caller context
   }
 
@@ -293,10 +603,37 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
     return this.producer;
   }
 
+  /**
+   * Execute a blocking call to the native producer, on the Vert.x worker pool or on a virtual thread when enabled,
+   * the calls are executed in order.
+   */
+  private <T> Future<T> executeBlocking(Handler<Promise<T>> blockingCodeHandler) {
+    if (this.worker == null) {
+      return this.context.executeBlocking(blockingCodeHandler);
+    }
+    Promise<T> promise = this.context.promise();
+    this.worker.execute(() -> {
+      try {
+        blockingCodeHandler.handle(promise);
+      } catch (Throwable e) {
+        promise.tryFail(e);
+      }
+    });
+    return promise.future();
+  }
+
+  /**
+   * Execute a transaction call, the records sent after it are not sent directly until it has returned.
+   */
   Future<Void> executeBlocking(final BlockingStatement statement) {
-    return this.context.executeBlocking(promise -> {
+    this.blockingCalls.incrementAndGet();
+    return this.<Void>executeBlocking(promise -> {
       try {
-        statement.execute();
+        try {
+          statement.execute();
+        } finally {
+          this.blockingCalls.decrementAndGet();
+        }
         promise.complete();
       } catch (Exception e) {
         promise.fail(e);
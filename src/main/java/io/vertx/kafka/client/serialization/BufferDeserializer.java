@@ -17,12 +17,15 @@
 package io.vertx.kafka.client.serialization;
 
 import io.vertx.core.buffer.Buffer;
+import io.vertx.kafka.client.common.impl.Helper;
 import org.apache.kafka.common.serialization.Deserializer;
 
 import java.util.Map;
 
 /**
  * Kafka deserializer for raw bytes in a buffer
+ * <p>
+ * The received bytes are wrapped in the buffer without copy.
  */
 public class BufferDeserializer implements Deserializer<Buffer> {
 
@@ -35,7 +38,7 @@ public class BufferDeserializer implements Deserializer<Buffer> {
     if (data == null)
       return null;
 
-    return Buffer.buffer(data);
+    return Helper.wrap(data);
   }
 
   @Override
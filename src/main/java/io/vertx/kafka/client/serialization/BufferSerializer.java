@@ -17,12 +17,17 @@
 package io.vertx.kafka.client.serialization;
 
 import io.vertx.core.buffer.Buffer;
+import io.vertx.kafka.client.common.impl.Helper;
 import org.apache.kafka.common.serialization.Serializer;
 
 import java.util.Map;
 
 /**
  * Kafka serializer for raw bytes in a buffer
+ * <p>
+ * The bytes of a heap buffer using its whole backing array, like the buffers created from a {@code byte[]} or
+ * received from a {@link BufferDeserializer}, are not copied: such a buffer must not be modified until the record
+ * is sent.
  */
 public class BufferSerializer implements Serializer<Buffer> {
 
@@ -35,7 +40,7 @@ public class BufferSerializer implements Serializer<Buffer> {
     if (data == null)
       return null;
 
-    return data.getBytes();
+    return Helper.toBytes(data);
   }
 
   @Override
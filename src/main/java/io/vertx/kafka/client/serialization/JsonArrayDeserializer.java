@@ -16,14 +16,17 @@
 
 package io.vertx.kafka.client.serialization;
 
-import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.jackson.DatabindCodec;
 import org.apache.kafka.common.serialization.Deserializer;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Kafka deserializer for raw bytes in a buffer
+ * Kafka deserializer for JsonArray, decoded from UTF-8 JSON
  */
 public class JsonArrayDeserializer implements Deserializer<JsonArray> {
 
@@ -36,7 +39,12 @@ public class JsonArrayDeserializer implements Deserializer<JsonArray> {
     if (data == null)
       return null;
 
-    return Buffer.buffer(data).toJsonArray();
+    try {
+      // parsed straight from the consumed bytes
+      return new JsonArray(DatabindCodec.mapper().readValue(data, List.class));
+    } catch (IOException e) {
+      throw new DecodeException("Failed to decode: " + e.getMessage(), e);
+    }
   }
 
   @Override
@@ -16,13 +16,16 @@
 
 package io.vertx.kafka.client.serialization;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.vertx.core.json.EncodeException;
 import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.jackson.DatabindCodec;
 import org.apache.kafka.common.serialization.Serializer;
 
 import java.util.Map;
 
 /**
- * Kafka serializer for raw bytes in a buffer
+ * Kafka serializer for JsonArray, encoded as UTF-8 JSON
  */
 public class JsonArraySerializer implements Serializer<JsonArray> {
 
@@ -35,7 +38,12 @@ public class JsonArraySerializer implements Serializer<JsonArray> {
     if (data == null)
       return null;
 
-    return data.encode().getBytes();
+    try {
+      // written straight to UTF-8 bytes, Jackson reuses its per-thread buffers
+      return DatabindCodec.mapper().writeValueAsBytes(data);
+    } catch (JsonProcessingException e) {
+      throw new EncodeException("Failed to encode as JSON: " + e.getMessage());
+    }
   }
 
   @Override
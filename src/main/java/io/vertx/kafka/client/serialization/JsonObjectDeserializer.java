@@ -16,14 +16,16 @@
 
 package io.vertx.kafka.client.serialization;
 
-import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.jackson.DatabindCodec;
 import org.apache.kafka.common.serialization.Deserializer;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
- * Kafka deserializer for raw bytes in a buffer
+ * Kafka deserializer for JsonObject, decoded from UTF-8 JSON
  */
 public class JsonObjectDeserializer implements Deserializer<JsonObject> {
 
@@ -36,7 +38,12 @@ public class JsonObjectDeserializer implements Deserializer<JsonObject> {
     if (data == null)
       return null;
 
-    return Buffer.buffer(data).toJsonObject();
+    try {
+      // parsed straight from the consumed bytes
+      return new JsonObject(DatabindCodec.mapper().readValue(data, Map.class));
+    } catch (IOException e) {
+      throw new DecodeException("Failed to decode: " + e.getMessage(), e);
+    }
   }
 
   @Override
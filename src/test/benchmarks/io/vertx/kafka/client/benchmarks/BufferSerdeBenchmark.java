@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.benchmarks;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.kafka.client.serialization.BufferDeserializer;
+import io.vertx.kafka.client.serialization.BufferSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link BufferSerializer} and {@link BufferDeserializer} with copying the bytes, run it with {@code -prof gc}
+ * to see the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BufferSerdeBenchmark {
+
+  @Param({"128", "65536"})
+  public int size;
+
+  private final BufferSerializer serializer = new BufferSerializer();
+  private final BufferDeserializer deserializer = new BufferDeserializer();
+  private byte[] bytes;
+  private Buffer buffer;
+
+  @Setup
+  public void setup() {
+    bytes = new byte[size];
+    buffer = Buffer.buffer(bytes);
+  }
+
+  @Benchmark
+  public byte[] serializeCopy() {
+    return buffer.getBytes();
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return serializer.serialize("the_topic", buffer);
+  }
+
+  @Benchmark
+  public Buffer deserializeCopy() {
+    return Buffer.buffer(bytes);
+  }
+
+  @Benchmark
+  public Buffer deserialize() {
+    return deserializer.deserialize("the_topic", bytes);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.common.KafkaClientOptions;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the throughput of many consumers with the native consumers polled on a thread per consumer,
+ * on a shared worker pool or on virtual threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ConsumerBenchmark {
+
+  private static final int RECORDS = 100;
+
+  /**
+   * A mock consumer waiting for the poll timeout when no records are available, like the native consumer does.
+   */
+  private static class IdleMockConsumer extends MockConsumer<String, String> {
+
+    IdleMockConsumer() {
+      super(OffsetResetStrategy.EARLIEST);
+    }
+
+    @Override
+    public synchronized ConsumerRecords<String, String> poll(Duration timeout) {
+      ConsumerRecords<String, String> records = super.poll(timeout);
+      if (records.isEmpty()) {
+        try {
+          wait(timeout.toMillis());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return records;
+    }
+
+    @Override
+    public synchronized void schedulePollTask(Runnable task) {
+      super.schedulePollTask(task);
+      notifyAll();
+    }
+  }
+
+  @Param({"10", "500"})
+  public int consumers;
+
+  @Param({"thread", "pool", "virtual"})
+  public String threading;
+
+  private Vertx vertx;
+  private List<IdleMockConsumer> mocks;
+  private AtomicReference<CountDownLatch> latch = new AtomicReference<>();
+  private long offset;
+
+  @Setup
+  public void setup() throws Exception {
+    vertx = Vertx.vertx();
+    mocks = new ArrayList<>();
+    KafkaClientOptions options = new KafkaClientOptions();
+    if (threading.equals("pool")) {
+      options.setWorkerPoolName("benchmark-pool").setWorkerPoolSize(Runtime.getRuntime().availableProcessors() * 2);
+    } else if (threading.equals("virtual")) {
+      options.setUseVirtualThreads(true);
+    }
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    CountDownLatch subscribed = new CountDownLatch(consumers);
+    for (int i = 0; i < consumers; i++) {
+      IdleMockConsumer mock = new IdleMockConsumer();
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Collections.singletonList(partition));
+        mock.seek(partition, 0L);
+      });
+      mocks.add(mock);
+      KafkaReadStream<String, String> stream = KafkaReadStream.create(vertx, mock, options);
+      stream.pollTimeout(Duration.ofMillis(100));
+      stream.handler(record -> latch.get().countDown());
+      stream.subscribe(Collections.singleton("the_topic"), ar -> subscribed.countDown());
+    }
+    subscribed.await(30, TimeUnit.SECONDS);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    CountDownLatch closed = new CountDownLatch(1);
+    vertx.close(ar -> closed.countDown());
+    closed.await(30, TimeUnit.SECONDS);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void consume() throws Exception {
+    latch.set(new CountDownLatch(RECORDS));
+    for (int i = 0; i < RECORDS; i++) {
+      IdleMockConsumer mock = mocks.get(i % consumers);
+      long o = offset++;
+      mock.schedulePollTask(() -> mock.addRecord(new ConsumerRecord<>("the_topic", 0, o, "key", "value")));
+    }
+    latch.get().await();
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.benchmarks;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.kafka.client.serialization.JsonObjectDeserializer;
+import io.vertx.kafka.client.serialization.JsonObjectSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link JsonObjectSerializer} and {@link JsonObjectDeserializer} with encoding through a {@code String}
+ * and decoding through a {@code Buffer} copy, run it with {@code -prof gc} to see the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JsonSerdeBenchmark {
+
+  @Param({"5", "500"})
+  public int fields;
+
+  private final JsonObjectSerializer serializer = new JsonObjectSerializer();
+  private final JsonObjectDeserializer deserializer = new JsonObjectDeserializer();
+  private JsonObject json;
+  private byte[] bytes;
+
+  @Setup
+  public void setup() {
+    json = new JsonObject();
+    for (int i = 0; i < fields; i++) {
+      json.put("field-" + i, new JsonObject()
+        .put("name", "the-name-" + i)
+        .put("value", i)
+        .put("tags", new JsonArray().add("a").add("b")));
+    }
+    bytes = json.encode().getBytes();
+  }
+
+  @Benchmark
+  public byte[] serializeString() {
+    return json.encode().getBytes();
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return serializer.serialize("the_topic", json);
+  }
+
+  @Benchmark
+  public JsonObject deserializeBuffer() {
+    return Buffer.buffer(bytes).toJsonObject();
+  }
+
+  @Benchmark
+  public JsonObject deserialize() {
+    return deserializer.deserialize("the_topic", bytes);
+  }
+}
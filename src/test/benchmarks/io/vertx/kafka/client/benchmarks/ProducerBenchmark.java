@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.common.KafkaClientOptions;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link KafkaWriteStream#send} with the blocking calls executed on the Vert.x worker pool
+ * or on virtual threads, for a growing number of producers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProducerBenchmark {
+
+  private static final int RECORDS = 1000;
+
+  @Param({"1", "100"})
+  public int producers;
+
+  @Param({"false", "true"})
+  public boolean useVirtualThreads;
+
+  private Vertx vertx;
+  private List<MockProducer<String, String>> mocks;
+  private List<KafkaWriteStream<String, String>> streams;
+  private ProducerRecord<String, String> record;
+
+  @Setup
+  public void setup() {
+    vertx = Vertx.vertx();
+    mocks = new ArrayList<>();
+    streams = new ArrayList<>();
+    KafkaClientOptions options = new KafkaClientOptions().setUseVirtualThreads(useVirtualThreads);
+    for (int i = 0; i < producers; i++) {
+      MockProducer<String, String> mock = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+      mocks.add(mock);
+      streams.add(KafkaWriteStream.create(vertx, mock, options));
+    }
+    record = new ProducerRecord<>("the_topic", 0, "key", "value");
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    vertx.close(ar -> latch.countDown());
+    latch.await(30, TimeUnit.SECONDS);
+  }
+
+  @TearDown(Level.Invocation)
+  public void clear() {
+    mocks.forEach(MockProducer::clear);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void send() throws Exception {
+    CountDownLatch latch = new CountDownLatch(RECORDS);
+    for (int i = 0; i < RECORDS; i++) {
+      streams.get(i % producers).send(record).onComplete(ar -> latch.countDown());
+    }
+    latch.await();
+  }
+}
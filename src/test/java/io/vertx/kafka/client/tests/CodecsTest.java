@@ -24,6 +24,8 @@ import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.kafka.client.serialization.BufferDeserializer;
 import io.vertx.kafka.client.serialization.BufferSerializer;
+import io.vertx.kafka.client.serialization.JsonObjectDeserializer;
+import io.vertx.kafka.client.serialization.JsonObjectSerializer;
 import io.vertx.kafka.client.consumer.KafkaReadStream;
 import io.vertx.kafka.client.producer.KafkaWriteStream;
 import io.vertx.kafka.client.serialization.VertxSerdes;
@@ -36,13 +38,16 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * Codec tests
@@ -72,6 +77,17 @@ public class CodecsTest extends KafkaClusterTestBase {
     testSerializer(Buffer.class, Buffer.buffer("Hello"));
   }
 
+  @Test
+  public void testBufferSerializerWithoutCopy() {
+    byte[] bytes = "Hello".getBytes();
+    Buffer buffer = new BufferDeserializer().deserialize(topic, bytes);
+    assertSame(bytes, new BufferSerializer().serialize(topic, buffer));
+    buffer.appendString(" world");
+    assertEquals("Hello world", buffer.toString());
+    Buffer slice = buffer.slice(0, 5);
+    assertArrayEquals("Hello".getBytes(), new BufferSerializer().serialize(topic, slice));
+  }
+
   @Test
   public void testJsonObjectSerializer() {
     testSerializer(JsonObject.class, new JsonObject()
@@ -80,6 +96,14 @@ public class CodecsTest extends KafkaClusterTestBase {
       .put("the-boolean", true));
   }
 
+  @Test
+  public void testJsonSerializerUtf8() {
+    JsonObject json = new JsonObject().put("text", "h\u00e9llo \u20ac").put("nested", new JsonArray().add(new JsonObject().put("n", 1)));
+    byte[] bytes = new JsonObjectSerializer().serialize(topic, json);
+    assertArrayEquals(json.encode().getBytes(StandardCharsets.UTF_8), bytes);
+    assertEquals(json, new JsonObjectDeserializer().deserialize(topic, bytes));
+  }
+
   @Test
   public void testJsonArraySerializer() {
     testSerializer(JsonArray.class, new JsonArray().add(3).add("s").add(true));
@@ -16,27 +16,52 @@
 
 package io.vertx.kafka.client.tests;
 
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.consumer.KafkaConsumer;
 import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.consumer.impl.DeserializingConsumer;
+import io.vertx.kafka.client.consumer.impl.KafkaConsumerImpl;
 import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.OffsetResetStrategy;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.internals.RecordHeader;
 import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Tests using mock consumers
@@ -44,7 +69,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 @RunWith(VertxUnitRunner.class)
 public abstract class ConsumerMockTestBase {
 
-  private Vertx vertx;
+  protected Vertx vertx;
 
   @Before
   public void beforeTest() {
@@ -56,6 +81,28 @@ public abstract class ConsumerMockTestBase {
     vertx.close(ctx.asyncAssertSuccess());
   }
 
+  // Assign the partitions on the next poll, each with num records from offset 0
+  private static void assignRecords(MockConsumer<String, String> mock, List<TopicPartition> partitions, int num) {
+    mock.schedulePollTask(() -> {
+      mock.rebalance(partitions);
+      for (TopicPartition partition : partitions) {
+        mock.seek(partition, 0);
+        for (int i = 0; i < num; i++) {
+          mock.addRecord(new ConsumerRecord<>(partition.topic(), partition.partition(), i, "key-" + i, "value-" + i));
+        }
+      }
+    });
+  }
+
+  // Count a record delivered in the current context tick, a tick ends when the tasks queued during it run
+  private static void countTick(List<Integer> ticks, AtomicBoolean inTick) {
+    if (!inTick.getAndSet(true)) {
+      ticks.add(0);
+      Vertx.currentContext().runOnContext(v -> inTick.set(false));
+    }
+    ticks.set(ticks.size() - 1, ticks.get(ticks.size() - 1) + 1);
+  }
+
   @Test
   public void testConsume(TestContext ctx) throws Exception {
     MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
@@ -134,5 +181,835 @@ public abstract class ConsumerMockTestBase {
     });
   }
 
+  @Test
+  public void testPrefetch(TestContext ctx) throws Exception {
+    int batches = 5;
+    int num = 20;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    consumer.prefetchRecords(2 * num);
+    Async doneLatch = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    consumer.handler(record -> {
+      int val = count.getAndIncrement();
+      if (val < batches * num) {
+        ctx.assertEquals((long) val, record.offset());
+        ctx.assertEquals("value-" + val, record.value());
+        if (val == batches * num - 1) {
+          consumer.close(v -> doneLatch.complete());
+        }
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Collections.singletonList(new TopicPartition("the_topic", 0)));
+        mock.seek(new TopicPartition("the_topic", 0), 0);
+      });
+      for (int b = 0; b < batches; b++) {
+        int base = b * num;
+        mock.schedulePollTask(() -> {
+          for (int i = base; i < base + num; i++) {
+            mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+          }
+        });
+      }
+    });
+  }
+
+  @Test
+  public void testRecordsPerTick(TestContext ctx) throws Exception {
+    int num = 20;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    consumer.recordsPerTick(3);
+    Async doneLatch = ctx.async();
+    List<Integer> ticks = new ArrayList<>();
+    AtomicBoolean inTick = new AtomicBoolean();
+    AtomicInteger count = new AtomicInteger();
+    consumer.handler(record -> {
+      countTick(ticks, inTick);
+      if (count.incrementAndGet() == num) {
+        // The records of the batch are spread over several ticks
+        ctx.assertEquals(3, ticks.get(0));
+        ticks.forEach(records -> ctx.assertTrue(records <= 3));
+        consumer.close(v -> doneLatch.complete());
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      assignRecords(mock, Collections.singletonList(new TopicPartition("the_topic", 0)), num);
+    });
+  }
+
+  @Test
+  public void testTickDuration(TestContext ctx) throws Exception {
+    int num = 10;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    consumer.tickDuration(Duration.ofMillis(1));
+    Async doneLatch = ctx.async();
+    List<Integer> ticks = new ArrayList<>();
+    AtomicBoolean inTick = new AtomicBoolean();
+    AtomicInteger count = new AtomicInteger();
+    consumer.handler(record -> {
+      countTick(ticks, inTick);
+      try {
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        ctx.fail(e);
+      }
+      if (count.incrementAndGet() == num) {
+        // The tick duration is reached after each record, well before the records per tick
+        ctx.assertEquals(num, ticks.size());
+        consumer.close(v -> doneLatch.complete());
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      assignRecords(mock, Collections.singletonList(new TopicPartition("the_topic", 0)), num);
+    });
+  }
+
+  @Test
+  public void testIdlePollsBlockOnConsumerThread(TestContext ctx) throws Exception {
+    BlockingMockConsumer mock = new BlockingMockConsumer();
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    consumer.pollTimeout(Duration.ofMillis(100));
+    Async doneLatch = ctx.async();
+    consumer.handler(record -> {
+      ctx.assertEquals("value-0", record.value());
+      ctx.assertFalse(mock.polledOnEventLoop);
+      consumer.close(v -> doneLatch.complete());
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), ctx.asyncAssertSuccess(v -> {
+      assignRecords(mock, Collections.singletonList(new TopicPartition("the_topic", 0)), 0);
+      vertx.setTimer(1000, id -> {
+        // The empty polls wait for the poll timeout instead of being retried right away or on a timer
+        int polls = mock.polls.get();
+        ctx.assertTrue(polls > 0 && polls <= 15, "Unexpected number of polls " + polls);
+        mock.schedulePollTask(() -> mock.addRecord(new ConsumerRecord<>("the_topic", 0, 0L, "key-0", "value-0")));
+      });
+    }));
+  }
+
+  @Test
+  public void testAsyncCommit(TestContext ctx) throws Exception {
+    int num = 10;
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    consumer.asyncCommit(true);
+    Async doneLatch = ctx.async(num);
+    for (int i = 0; i < num; i++) {
+      Map<TopicPartition, OffsetAndMetadata> offsets = Collections.singletonMap(partition, new OffsetAndMetadata(i + 1));
+      consumer.commit(offsets).onComplete(ctx.asyncAssertSuccess(committed -> {
+        ctx.assertEquals(offsets, committed);
+        doneLatch.countDown();
+      }));
+    }
+    doneLatch.awaitSuccess(10000);
+    consumer.committed(partition).onComplete(ctx.asyncAssertSuccess(committed -> {
+      ctx.assertEquals((long) num, committed.offset());
+      consumer.close(ctx.asyncAssertSuccess());
+    }));
+  }
+
+  @Test
+  public void testControlTaskInterruptsPoll(TestContext ctx) throws Exception {
+    BlockingMockConsumer mock = new BlockingMockConsumer();
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    consumer.pollTimeout(Duration.ofSeconds(30));
+    consumer.handler(record -> {});
+    Async doneLatch = ctx.async();
+    consumer.subscribe(Collections.singleton("the_topic"), ctx.asyncAssertSuccess(v -> {
+      // Let the consumer thread block in poll
+      vertx.setTimer(100, id -> {
+        long start = System.currentTimeMillis();
+        consumer.paused().onComplete(ctx.asyncAssertSuccess(paused -> {
+          ctx.assertTrue(System.currentTimeMillis() - start < 10000);
+          consumer.close(ctx.asyncAssertSuccess(closed -> doneLatch.complete()));
+        }));
+      });
+    }));
+  }
+
+  @Test
+  public void testBatchHandlerDemand(TestContext ctx) throws Exception {
+    int batches = 3;
+    int num = 5;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    consumer.pause();
+    Async doneLatch = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    AtomicInteger fetched = new AtomicInteger();
+    consumer.batchHandler(records -> {
+      int val = count.incrementAndGet();
+      ctx.assertEquals(fetched.get(), val);
+      ctx.assertEquals(0L, consumer.demand());
+      if (val == batches) {
+        consumer.close(v -> doneLatch.complete());
+      } else {
+        // No batch is delivered until more demand is signalled
+        vertx.setTimer(50, id -> {
+          ctx.assertEquals(val, count.get());
+          fetched.incrementAndGet();
+          consumer.fetch(1);
+        });
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Collections.singletonList(new TopicPartition("the_topic", 0)));
+        mock.seek(new TopicPartition("the_topic", 0), 0);
+      });
+      for (int b = 0; b < batches; b++) {
+        int base = b * num;
+        mock.schedulePollTask(() -> {
+          for (int i = base; i < base + num; i++) {
+            mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+          }
+        });
+      }
+      fetched.incrementAndGet();
+      consumer.fetch(1);
+    });
+  }
+
+  @Test
+  public void testSeekDropsPartitionRecords(TestContext ctx) throws Exception {
+    int num = 5;
+    TopicPartition partition0 = new TopicPartition("the_topic", 0);
+    TopicPartition partition1 = new TopicPartition("the_topic", 1);
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    Async doneLatch = ctx.async();
+    consumer.recordsPerTick(1);
+    Map<Integer, AtomicInteger> counts = new HashMap<>();
+    AtomicInteger seeked = new AtomicInteger(-1);
+    consumer.handler(record -> {
+      int count = counts.computeIfAbsent(record.partition(), p -> new AtomicInteger()).incrementAndGet();
+      if (seeked.compareAndSet(-1, record.partition())) {
+        // Drops the records buffered for this partition only
+        consumer.seek(new TopicPartition("the_topic", record.partition()), num);
+      } else if (count == num) {
+        ctx.assertNotEquals(seeked.get(), record.partition());
+        vertx.setTimer(100, id -> {
+          ctx.assertEquals(1, counts.get(seeked.get()).get());
+          consumer.close(v -> doneLatch.complete());
+        });
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Arrays.asList(partition0, partition1));
+        mock.seek(partition0, 0);
+        mock.seek(partition1, 0);
+        for (int i = 0; i < num; i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+          mock.addRecord(new ConsumerRecord<>("the_topic", 1, i, "key-" + i, "value-" + i));
+        }
+      });
+    });
+  }
+
+  @Test
+  public void testDispatchHandler(TestContext ctx) throws Exception {
+    int partitions = 4;
+    int num = 50;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    Async doneLatch = ctx.async(partitions * num);
+    Map<Integer, AtomicInteger> counts = new ConcurrentHashMap<>();
+    consumer.dispatchHandler(2, false, record -> {
+      ctx.assertFalse(Context.isOnEventLoopThread());
+      int val = counts.computeIfAbsent(record.partition(), p -> new AtomicInteger()).getAndIncrement();
+      ctx.assertEquals((long) val, record.offset());
+      doneLatch.countDown();
+    });
+    List<TopicPartition> assigned = new ArrayList<>();
+    for (int p = 0; p < partitions; p++) {
+      assigned.add(new TopicPartition("the_topic", p));
+    }
+    consumer.subscribe(Collections.singleton("the_topic"), v -> assignRecords(mock, assigned, num));
+    doneLatch.awaitSuccess(10000);
+    Async committed = ctx.async();
+    consumer.commit().onComplete(ctx.asyncAssertSuccess(offsets -> {
+      ctx.assertEquals(partitions, offsets.size());
+      for (TopicPartition partition : assigned) {
+        ctx.assertEquals((long) num, offsets.get(partition).offset());
+      }
+      consumer.close(v -> committed.complete());
+    }));
+  }
+
+  @Test
+  public void testDispatchHandlerFailure(TestContext ctx) throws Exception {
+    int num = 20;
+    long failed = 10L;
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    Async doneLatch = ctx.async(num);
+    Async failure = ctx.async();
+    consumer.exceptionHandler(err -> {
+      ctx.assertEquals("failed", err.getMessage());
+      failure.complete();
+    });
+    consumer.dispatchHandler(2, false, record -> {
+      doneLatch.countDown();
+      if (record.offset() == failed) {
+        throw new RuntimeException("failed");
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> assignRecords(mock, Collections.singletonList(partition), num));
+    doneLatch.awaitSuccess(10000);
+    failure.awaitSuccess(10000);
+    Async committed = ctx.async();
+    consumer.commit().onComplete(ctx.asyncAssertSuccess(offsets -> {
+      // The failed record is reported and not committed
+      ctx.assertEquals(failed, offsets.get(partition).offset());
+      consumer.close(v -> committed.complete());
+    }));
+  }
+
+  @Test
+  public void testDispatchHandlerKeepsDemand(TestContext ctx) throws Exception {
+    int num = 500;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    CountDownLatch blocked = new CountDownLatch(1);
+    AtomicInteger handled = new AtomicInteger();
+    Async doneLatch = ctx.async(num);
+    consumer.dispatchHandler(1, false, record -> {
+      try {
+        blocked.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      handled.incrementAndGet();
+      doneLatch.countDown();
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), ctx.asyncAssertSuccess(v -> {
+      assignRecords(mock, Collections.singletonList(new TopicPartition("the_topic", 0)), num);
+      // The lane lags behind, the stream is throttled then paused by the user
+      vertx.setTimer(500, id1 -> {
+        consumer.pause();
+        blocked.countDown();
+        vertx.setTimer(500, id2 -> {
+          // The lane caught up but the stream stays paused
+          ctx.assertTrue(handled.get() < num, "Unexpected number of records " + handled.get());
+          ctx.assertEquals(0L, consumer.demand());
+          consumer.resume();
+        });
+      });
+    }));
+    doneLatch.awaitSuccess(10000);
+    consumer.close(ctx.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testDispatchHandlerByteArrayKeys(TestContext ctx) throws Exception {
+    int num = 200;
+    int keys = 5;
+    MockConsumer<byte[], String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<byte[], String> consumer = createConsumer(vertx, mock);
+    Async doneLatch = ctx.async(num);
+    Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+    consumer.dispatchHandler(4, true, record -> {
+      // Equal keys are distinct arrays, their records are still processed in order
+      int val = counts.computeIfAbsent(new String(record.key()), k -> new AtomicInteger()).getAndIncrement();
+      ctx.assertEquals("value-" + val, record.value());
+      doneLatch.countDown();
+    });
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Collections.singletonList(partition));
+        mock.seek(partition, 0);
+        for (int i = 0; i < num; i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, ("key-" + i % keys).getBytes(), "value-" + i / keys));
+        }
+      });
+    });
+    doneLatch.awaitSuccess(10000);
+    consumer.close(ctx.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testAsyncHandler(TestContext ctx) throws Exception {
+    int num = 50;
+    int maxInFlight = 4;
+    long failed = 30L;
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    Async doneLatch = ctx.async(num);
+    Async failure = ctx.async();
+    AtomicInteger inFlight = new AtomicInteger();
+    consumer.exceptionHandler(err -> failure.complete());
+    consumer.asyncHandler(maxInFlight, record -> {
+      ctx.assertTrue(inFlight.incrementAndGet() <= maxInFlight);
+      Promise<Void> promise = Promise.promise();
+      // Complete the records out of order
+      vertx.setTimer(1 + (record.offset() % 3) * 5, id -> {
+        inFlight.decrementAndGet();
+        if (record.offset() == failed) {
+          promise.fail("failed");
+        } else {
+          promise.complete();
+        }
+        doneLatch.countDown();
+      });
+      return promise.future();
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> assignRecords(mock, Collections.singletonList(partition), num));
+    doneLatch.awaitSuccess(10000);
+    failure.awaitSuccess(10000);
+    Async committed = ctx.async();
+    consumer.commit().onComplete(ctx.asyncAssertSuccess(offsets -> {
+      // The failed record is reported and not committed
+      ctx.assertEquals(failed, offsets.get(partition).offset());
+      consumer.close(v -> committed.complete());
+    }));
+  }
+
+  @Test
+  public void testAsyncHandlerKeepsDemand(TestContext ctx) throws Exception {
+    int num = 10;
+    int maxInFlight = 2;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    List<Promise<Void>> held = new ArrayList<>();
+    AtomicBoolean hold = new AtomicBoolean(true);
+    Async doneLatch = ctx.async(num);
+    consumer.asyncHandler(maxInFlight, record -> {
+      doneLatch.countDown();
+      Promise<Void> promise = Promise.promise();
+      if (hold.get()) {
+        held.add(promise);
+      } else {
+        promise.complete();
+      }
+      return promise.future();
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), ctx.asyncAssertSuccess(v -> {
+      assignRecords(mock, Collections.singletonList(new TopicPartition("the_topic", 0)), num);
+      vertx.setTimer(500, id1 -> {
+        // The stream is throttled, then paused by the user before the records complete
+        ctx.assertEquals(maxInFlight, held.size());
+        consumer.pause();
+        hold.set(false);
+        held.forEach(Promise::complete);
+        vertx.setTimer(500, id2 -> {
+          ctx.assertEquals(maxInFlight, held.size());
+          ctx.assertEquals(0L, consumer.demand());
+          consumer.resume();
+        });
+      });
+    }));
+    doneLatch.awaitSuccess(10000);
+    consumer.close(ctx.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testLazyDeserialization(TestContext ctx) throws Exception {
+    int num = 10;
+    AtomicInteger deserialized = new AtomicInteger();
+    Deserializer<String> deserializer = (topic, data) -> {
+      deserialized.incrementAndGet();
+      return new String(data);
+    };
+    MockConsumer<byte[], byte[]> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, new DeserializingConsumer<>(mock, deserializer, deserializer));
+    Async doneLatch = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    consumer.handler(record -> {
+      int val = count.getAndIncrement();
+      // Only the values of the even records are read
+      if (val % 2 == 0) {
+        ctx.assertEquals("value-" + val, record.value());
+        ctx.assertEquals("value-" + val, record.value());
+      }
+      if (val == num - 1) {
+        ctx.assertEquals(num / 2, deserialized.get());
+        consumer.close(v -> doneLatch.complete());
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Collections.singletonList(new TopicPartition("the_topic", 0)));
+        mock.seek(new TopicPartition("the_topic", 0), 0);
+        for (int i = 0; i < num; i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, ("key-" + i).getBytes(), ("value-" + i).getBytes()));
+        }
+      });
+    });
+  }
+
+  @Test
+  public void testParallelDeserialization(TestContext ctx) throws Exception {
+    int num = 1000;
+    Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+    Deserializer<String> deserializer = (topic, data) -> {
+      threads.add(Thread.currentThread().getName());
+      return new String(data);
+    };
+    MockConsumer<byte[], byte[]> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, new DeserializingConsumer<>(mock, deserializer, deserializer, 4));
+    Async doneLatch = ctx.async();
+    int[] counts = new int[2];
+    consumer.handler(record -> {
+      int val = counts[record.partition()]++;
+      // The order of each partition is kept
+      ctx.assertEquals(val, (int) record.offset());
+      ctx.assertEquals("value-" + record.partition() + "-" + val, record.value());
+      if (counts[0] + counts[1] == 2 * num) {
+        // Deserialized on the pool rather than on the polling thread
+        threads.forEach(name -> ctx.assertTrue(name.startsWith("ForkJoinPool"), name));
+        consumer.close(v -> doneLatch.complete());
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        List<TopicPartition> partitions = Arrays.asList(new TopicPartition("the_topic", 0), new TopicPartition("the_topic", 1));
+        mock.rebalance(partitions);
+        for (TopicPartition partition : partitions) {
+          mock.seek(partition, 0);
+          for (int i = 0; i < num; i++) {
+            mock.addRecord(new ConsumerRecord<>("the_topic", partition.partition(), i, ("key-" + i).getBytes(),
+              ("value-" + partition.partition() + "-" + i).getBytes()));
+          }
+        }
+      });
+    });
+  }
+
+  @Test
+  public void testFilter(TestContext ctx) throws Exception {
+    int num = 50;
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    Async doneLatch = ctx.async(num / 2);
+    consumer.filter(record -> {
+      ctx.assertFalse(Context.isOnEventLoopThread());
+      return record.offset() % 2 == 0;
+    });
+    consumer.asyncHandler(4, record -> {
+      ctx.assertEquals(0L, record.offset() % 2);
+      doneLatch.countDown();
+      return Future.succeededFuture();
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> assignRecords(mock, Collections.singletonList(partition), num));
+    doneLatch.awaitSuccess(10000);
+    Async committed = ctx.async();
+    consumer.commit().onComplete(ctx.asyncAssertSuccess(offsets -> {
+      // The last record is rejected, its offset counts as processed
+      ctx.assertEquals((long) num, offsets.get(partition).offset());
+      consumer.close(v -> committed.complete());
+    }));
+  }
+
+  @Test
+  public void testFilterFailure(TestContext ctx) throws Exception {
+    int num = 10;
+    long failed = 3L;
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    Async doneLatch = ctx.async(num - 1);
+    Async failure = ctx.async();
+    consumer.exceptionHandler(err -> {
+      ctx.assertTrue(Context.isOnEventLoopThread());
+      ctx.assertEquals("failed", err.getMessage());
+      failure.complete();
+    });
+    consumer.filter(record -> {
+      if (record.offset() == failed) {
+        throw new RuntimeException("failed");
+      }
+      return true;
+    });
+    consumer.handler(record -> {
+      // The record whose predicate throws is rejected, the rest of the batch is delivered
+      ctx.assertNotEquals(failed, record.offset());
+      doneLatch.countDown();
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> assignRecords(mock, Collections.singletonList(partition), num));
+    doneLatch.awaitSuccess(10000);
+    failure.awaitSuccess(10000);
+    consumer.close(ctx.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testPartitionWatermarks(TestContext ctx) throws Exception {
+    int num = 20;
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    consumer.recordsPerTick(1);
+    consumer.partitionWatermarks(10, 2);
+    Async paused = ctx.async();
+    Async doneLatch = ctx.async();
+    consumer.handler(record -> {
+      if (record.offset() == 5L) {
+        // 14 records buffered
+        consumer.paused().onComplete(ctx.asyncAssertSuccess(partitions -> {
+          ctx.assertEquals(Collections.singleton(partition), partitions);
+          paused.complete();
+        }));
+      } else if (record.offset() == num - 1) {
+        // Resumed when 2 records were left
+        consumer.paused().onComplete(ctx.asyncAssertSuccess(partitions -> {
+          ctx.assertTrue(partitions.isEmpty());
+          consumer.close(v -> doneLatch.complete());
+        }));
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> assignRecords(mock, Collections.singletonList(partition), num));
+  }
+
+  @Test
+  public void testRevokeDropsPartitionRecords(TestContext ctx) throws Exception {
+    int num = 50;
+    TopicPartition partition0 = new TopicPartition("the_topic", 0);
+    TopicPartition partition1 = new TopicPartition("the_topic", 1);
+    RebalanceMockConsumer mock = new RebalanceMockConsumer();
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    consumer.recordsPerTick(1);
+    consumer.prefetchRecords(4 * num);
+    consumer.commitOnRevoke(true);
+    Async revoked = ctx.async();
+    Async doneLatch = ctx.async(num);
+    AtomicInteger delivered = new AtomicInteger();
+    AtomicLong revokedAt = new AtomicLong(-1L);
+    consumer.partitionsRevokedHandler(partitions -> {
+      ctx.assertEquals(Collections.singleton(partition1), partitions);
+      revokedAt.set(delivered.get());
+      revoked.complete();
+    });
+    consumer.handler(record -> {
+      if (record.partition() == 1) {
+        // The records of the revoked partition are not delivered after the revocation
+        ctx.assertEquals(-1L, revokedAt.get());
+        if (delivered.getAndIncrement() == 0) {
+          mock.schedulePollTask(() -> mock.listener.onPartitionsRevoked(Collections.singleton(partition1)));
+        }
+      } else {
+        doneLatch.countDown();
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> assignRecords(mock, Arrays.asList(partition0, partition1), num));
+    revoked.awaitSuccess(10000);
+    doneLatch.awaitSuccess(10000);
+    consumer.committed(partition1).onComplete(ctx.asyncAssertSuccess(committed -> {
+      // The new owner resumes right after the delivered records
+      ctx.assertEquals(revokedAt.get(), committed.offset());
+      consumer.close(ctx.asyncAssertSuccess());
+    }));
+  }
+
+  @Test
+  public void testSharedConsumer(TestContext ctx) throws Exception {
+    int num = 20;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    Async doneLatch = ctx.async(num * 2);
+    Map<Integer, KafkaConsumer<String, String>> owners = new ConcurrentHashMap<>();
+    List<KafkaConsumer<String, String>> consumers = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      KafkaConsumer<String, String> consumer = KafkaConsumerImpl.createShared(vertx, "the-consumer", false, () -> createConsumer(vertx, mock));
+      consumer.handler(record -> {
+        // The records of a partition are delivered to a single consumer
+        KafkaConsumer<String, String> owner = owners.putIfAbsent(record.partition(), consumer);
+        ctx.assertTrue(owner == null || owner == consumer);
+        doneLatch.countDown();
+      });
+      consumers.add(consumer);
+    }
+    List<TopicPartition> partitions = Arrays.asList(new TopicPartition("the_topic", 0), new TopicPartition("the_topic", 1));
+    consumers.get(0).subscribe("the_topic", ctx.asyncAssertSuccess(v -> assignRecords(mock, partitions, num)));
+    doneLatch.awaitSuccess(10000);
+    ctx.assertNotEquals(owners.get(0), owners.get(1));
+    Async closed = ctx.async(2);
+    consumers.forEach(consumer -> consumer.close(ctx.asyncAssertSuccess(v -> closed.countDown())));
+    closed.awaitSuccess(10000);
+    ctx.assertTrue(mock.closed());
+  }
+
+  @Test
+  public void testSharedConsumerCommit(TestContext ctx) throws Exception {
+    int num = 20;
+    long processed = 5L;
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> first = KafkaConsumerImpl.<String, String>createShared(vertx, "the-consumer", true, () -> createConsumer(vertx, mock)).asStream();
+    KafkaReadStream<String, String> second = KafkaConsumerImpl.<String, String>createShared(vertx, "the-consumer", true, () -> createConsumer(vertx, mock)).asStream();
+    Async doneLatch = ctx.async(num * 2);
+    List<Promise<Void>> held = Collections.synchronizedList(new ArrayList<>());
+    first.handler(record -> doneLatch.countDown());
+    second.asyncHandler(num, record -> {
+      doneLatch.countDown();
+      if (record.offset() < processed) {
+        return Future.succeededFuture();
+      }
+      Promise<Void> promise = Promise.promise();
+      held.add(promise);
+      return promise.future();
+    });
+    first.subscribe(Collections.singleton("the_topic"), v -> assignRecords(mock, Collections.singletonList(partition), num));
+    doneLatch.awaitSuccess(10000);
+    Async committed = ctx.async();
+    first.commit().onComplete(ctx.asyncAssertSuccess(offsets -> {
+      // The records held by the other consumer are not committed
+      ctx.assertEquals(processed, offsets.get(partition).offset());
+      held.forEach(Promise::complete);
+      first.commit().onComplete(ctx.asyncAssertSuccess(all -> {
+        ctx.assertEquals((long) num, all.get(partition).offset());
+        committed.complete();
+      }));
+    }));
+    committed.awaitSuccess(10000);
+    first.close(ctx.asyncAssertSuccess(v -> second.close(ctx.asyncAssertSuccess())));
+  }
+
+  @Test
+  public void testSharedConsumerSubscription(TestContext ctx) throws Exception {
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> first = KafkaConsumerImpl.<String, String>createShared(vertx, "the-consumer", false, () -> createConsumer(vertx, mock)).asStream();
+    KafkaReadStream<String, String> second = KafkaConsumerImpl.<String, String>createShared(vertx, "the-consumer", false, () -> createConsumer(vertx, mock)).asStream();
+    Async done = ctx.async();
+    first.subscribe(Collections.singleton("the_topic"))
+      .compose(v -> second.subscribe(Collections.singleton("the_topic")))
+      .compose(v -> second.subscribe(Collections.singleton("other_topic")).transform(ar -> {
+        // The other consumer is still subscribed to the topic
+        ctx.assertTrue(ar.failed() && ar.cause() instanceof IllegalStateException);
+        return Future.<Void>succeededFuture();
+      }))
+      .compose(v -> first.unsubscribe())
+      .compose(v -> {
+        ctx.assertEquals(Collections.singleton("the_topic"), mock.subscription());
+        return second.unsubscribe();
+      })
+      .onComplete(ctx.asyncAssertSuccess(v -> {
+        ctx.assertTrue(mock.subscription().isEmpty());
+        done.complete();
+      }));
+    done.awaitSuccess(10000);
+    first.close(ctx.asyncAssertSuccess(v -> second.close(ctx.asyncAssertSuccess())));
+  }
+
+  @Test
+  public void testSharedConsumerCommitOnRevoke(TestContext ctx) throws Exception {
+    int num = 20;
+    long processed = 5L;
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    RebalanceMockConsumer mock = new RebalanceMockConsumer();
+    KafkaReadStream<String, String> consumer = KafkaConsumerImpl.<String, String>createShared(vertx, "the-consumer", false, () -> createConsumer(vertx, mock)).asStream();
+    consumer.commitOnRevoke(true);
+    Async doneLatch = ctx.async(num);
+    Async revoked = ctx.async();
+    consumer.partitionsRevokedHandler(partitions -> revoked.complete());
+    consumer.asyncHandler(num, record -> {
+      doneLatch.countDown();
+      // The other records stay in flight
+      return record.offset() < processed ? Future.succeededFuture() : Promise.<Void>promise().future();
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> assignRecords(mock, Collections.singletonList(partition), num));
+    doneLatch.awaitSuccess(10000);
+    mock.schedulePollTask(() -> mock.listener.onPartitionsRevoked(Collections.singleton(partition)));
+    revoked.awaitSuccess(10000);
+    Async committed = ctx.async();
+    consumer.committed(partition).onComplete(ctx.asyncAssertSuccess(offset -> {
+      // The records fanned out but not processed are not committed
+      ctx.assertEquals(processed, offset.offset());
+      consumer.close(v -> committed.complete());
+    }));
+  }
+
+  @Test
+  public void testSharedConsumerContext(TestContext ctx) throws Exception {
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> first = KafkaConsumerImpl.<String, String>createShared(vertx, "the-consumer", false, () -> createConsumer(vertx, mock)).asStream();
+    Async done = ctx.async();
+    vertx.deployVerticle(new AbstractVerticle() {
+      @Override
+      public void start() {
+        KafkaReadStream<String, String> second = KafkaConsumerImpl.<String, String>createShared(vertx, "the-consumer", false, () -> createConsumer(vertx, mock)).asStream();
+        // The results of the shared stream are delivered on the context of this verticle
+        second.subscribe(Collections.singleton("the_topic"))
+          .compose(v -> {
+            ctx.assertEquals(context, Vertx.currentContext());
+            return second.subscription();
+          })
+          .onComplete(ctx.asyncAssertSuccess(topics -> {
+            ctx.assertEquals(context, Vertx.currentContext());
+            ctx.assertEquals(Collections.singleton("the_topic"), topics);
+            second.close(ctx.asyncAssertSuccess(v -> {
+              ctx.assertEquals(context, Vertx.currentContext());
+              done.complete();
+            }));
+          }));
+      }
+    });
+    done.awaitSuccess(10000);
+    first.close(ctx.asyncAssertSuccess());
+  }
+
+  /**
+   * A mock consumer blocking for the poll timeout when no records are available, like the native consumer does.
+   */
+  static class BlockingMockConsumer extends MockConsumer<String, String> {
+
+    private final AtomicInteger polls = new AtomicInteger();
+    private volatile boolean polledOnEventLoop;
+    private boolean wakeup;
+
+    BlockingMockConsumer() {
+      super(OffsetResetStrategy.EARLIEST);
+    }
+
+    @Override
+    public synchronized ConsumerRecords<String, String> poll(Duration timeout) {
+      polls.incrementAndGet();
+      polledOnEventLoop |= Context.isOnEventLoopThread();
+      ConsumerRecords<String, String> records = super.poll(timeout);
+      if (records.isEmpty() && !wakeup) {
+        try {
+          wait(timeout.toMillis());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (wakeup) {
+        wakeup = false;
+        throw new WakeupException();
+      }
+      return records;
+    }
+
+    @Override
+    public synchronized void wakeup() {
+      wakeup = true;
+      notifyAll();
+    }
+  }
+
+  /**
+   * A mock consumer keeping the rebalance listener, to revoke partitions like the native consumer does during a poll.
+   */
+  private static class RebalanceMockConsumer extends MockConsumer<String, String> {
+
+    private ConsumerRebalanceListener listener;
+
+    RebalanceMockConsumer() {
+      super(OffsetResetStrategy.EARLIEST);
+    }
+
+    @Override
+    public synchronized void subscribe(Collection<String> topics, ConsumerRebalanceListener listener) {
+      this.listener = listener;
+      super.subscribe(topics, listener);
+    }
+  }
+
   abstract <K, V> KafkaReadStream<K, V> createConsumer(Vertx vertx, Consumer<K, V> consumer);
 }
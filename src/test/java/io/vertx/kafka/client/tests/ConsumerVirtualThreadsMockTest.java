@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.common.KafkaClientOptions;
+import io.vertx.kafka.client.common.impl.VirtualThreads;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.consumer.impl.KafkaReadStreamImpl;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.junit.Assume;
+
+/**
+ * Tests using mock consumers polled on virtual threads
+ */
+public class ConsumerVirtualThreadsMockTest extends ConsumerMockTestBase {
+
+  @Override
+  <K, V> KafkaReadStream<K, V> createConsumer(Vertx vertx, Consumer<K, V> consumer) {
+    Assume.assumeTrue(VirtualThreads.isSupported());
+    KafkaClientOptions options = new KafkaClientOptions().setUseVirtualThreads(true);
+    return new KafkaReadStreamImpl<>(vertx, consumer, options);
+  }
+}
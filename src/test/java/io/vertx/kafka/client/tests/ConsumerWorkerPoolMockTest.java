@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.kafka.client.common.KafkaClientOptions;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.consumer.impl.KafkaReadStreamImpl;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests using mock consumers sharing a worker pool
+ */
+public class ConsumerWorkerPoolMockTest extends ConsumerMockTestBase {
+
+  @Override
+  <K, V> KafkaReadStream<K, V> createConsumer(Vertx vertx, Consumer<K, V> consumer) {
+    KafkaClientOptions options = new KafkaClientOptions()
+      .setWorkerPoolName("test-consumer-pool")
+      .setWorkerPoolSize(1);
+    return new KafkaReadStreamImpl<>(vertx, consumer, options);
+  }
+
+  @Test
+  public void testMoreConsumersThanThreads(TestContext ctx) {
+    KafkaClientOptions options = new KafkaClientOptions()
+      .setWorkerPoolName("small-pool")
+      .setWorkerPoolSize(2);
+    List<KafkaReadStream<String, String>> consumers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      // Idle consumers blocking in poll for longer than the test timeout
+      KafkaReadStream<String, String> idle = new KafkaReadStreamImpl<>(vertx, new BlockingMockConsumer(), options);
+      idle.pollTimeout(Duration.ofSeconds(30));
+      idle.handler(record -> ctx.fail());
+      idle.subscribe(Collections.singleton("idle_topic"), ctx.asyncAssertSuccess());
+      consumers.add(idle);
+    }
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = new KafkaReadStreamImpl<>(vertx, mock, options);
+    consumers.add(consumer);
+    Async doneLatch = ctx.async();
+    long timerId = vertx.setTimer(10_000, id -> ctx.fail("The record was not delivered"));
+    consumer.handler(record -> {
+      ctx.assertEquals("value-0", record.value());
+      vertx.cancelTimer(timerId);
+      for (KafkaReadStream<String, String> c : consumers) {
+        c.close(ctx.asyncAssertSuccess());
+      }
+      doneLatch.complete();
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), ctx.asyncAssertSuccess(v -> {
+      mock.schedulePollTask(() -> {
+        TopicPartition partition = new TopicPartition("the_topic", 0);
+        mock.rebalance(Collections.singletonList(partition));
+        mock.seek(partition, 0);
+        mock.addRecord(new ConsumerRecord<>("the_topic", 0, 0L, "key-0", "value-0"));
+      });
+    }));
+  }
+
+  @Test
+  public void testConflictingPoolSize(TestContext ctx) {
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, new MockConsumer<>(OffsetResetStrategy.EARLIEST));
+    consumer.subscribe(Collections.singleton("the_topic"), ctx.asyncAssertSuccess(v -> {
+      KafkaClientOptions options = new KafkaClientOptions()
+        .setWorkerPoolName("test-consumer-pool")
+        .setWorkerPoolSize(2);
+      KafkaReadStream<String, String> other = new KafkaReadStreamImpl<>(vertx, new MockConsumer<>(OffsetResetStrategy.EARLIEST), options);
+      try {
+        other.subscribe(Collections.singleton("the_topic"));
+        ctx.fail();
+      } catch (IllegalStateException ignore) {
+      }
+      consumer.close(ctx.asyncAssertSuccess());
+    }));
+  }
+}
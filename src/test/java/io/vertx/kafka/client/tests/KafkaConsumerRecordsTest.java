@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.tests;
+
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.consumer.KafkaConsumerRecords;
+import io.vertx.kafka.client.consumer.impl.KafkaConsumerRecordsImpl;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(VertxUnitRunner.class)
+public class KafkaConsumerRecordsTest {
+
+  private static KafkaConsumerRecords<String, String> createRecords(int partitions, int num) {
+    Map<TopicPartition, List<ConsumerRecord<String, String>>> map = new LinkedHashMap<>();
+    for (int p = 0; p < partitions; p++) {
+      List<ConsumerRecord<String, String>> list = new ArrayList<>();
+      for (int i = 0; i < num; i++) {
+        list.add(new ConsumerRecord<>("the_topic", p, i, "key-" + p + "-" + i, "value-" + p + "-" + i));
+      }
+      map.put(new TopicPartition("the_topic", p), list);
+    }
+    return new KafkaConsumerRecordsImpl<>(new ConsumerRecords<>(map));
+  }
+
+  @Test
+  public void testIndexedAccess(TestContext ctx) {
+    KafkaConsumerRecords<String, String> records = createRecords(2, 3);
+    ctx.assertEquals(6, records.size());
+    for (int i = 0; i < records.size(); i++) {
+      int partition = i / 3;
+      int offset = i % 3;
+      ctx.assertEquals("the_topic", records.topicAt(i));
+      ctx.assertEquals(partition, records.partitionAt(i));
+      ctx.assertEquals((long) offset, records.offsetAt(i));
+      ctx.assertEquals("key-" + partition + "-" + offset, records.keyAt(i));
+      ctx.assertEquals("value-" + partition + "-" + offset, records.valueAt(i));
+      ctx.assertEquals(records.valueAt(i), records.recordAt(i).value());
+      ctx.assertTrue(records.recordAt(i) == records.recordAt(i));
+    }
+  }
+
+  @Test
+  public void testForEach(TestContext ctx) {
+    KafkaConsumerRecords<String, String> records = createRecords(2, 3);
+    AtomicInteger index = new AtomicInteger();
+    records.forEach(record -> {
+      int i = index.getAndIncrement();
+      ctx.assertEquals(records.partitionAt(i), record.partition());
+      ctx.assertEquals(records.offsetAt(i), record.offset());
+      ctx.assertEquals(records.keyAt(i), record.key());
+      ctx.assertEquals(records.valueAt(i), record.value());
+    });
+    ctx.assertEquals(records.size(), index.get());
+  }
+}
@@ -16,8 +16,16 @@
 
 package io.vertx.kafka.client.tests;
 
+import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.consumer.KafkaConsumerRecord;
+import io.vertx.kafka.client.consumer.impl.KafkaConsumerRecordImpl;
 import io.vertx.kafka.client.producer.KafkaHeader;
 import io.vertx.kafka.client.producer.KafkaProducerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -26,6 +34,8 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class KafkaHeaderTest {
 
@@ -57,4 +67,44 @@ public class KafkaHeaderTest {
     assertEquals("value2", kafkaHeader2.value().toString());
   }
 
+  @Test
+  public void testNativeHeadersWithoutCopy() {
+    byte[] value = "value1".getBytes();
+    ProducerRecord<String, String> record = KafkaProducerRecord.create("mytopic", "mykey", "myvalue")
+      .addHeader(KafkaHeader.header("key1", Helper.wrap(value)))
+      .record();
+
+    Header[] nativeHeaders = record.headers().toArray();
+    assertEquals(1, nativeHeaders.length);
+    assertSame(value, nativeHeaders[0].value());
+  }
+
+  @Test
+  public void testHeaderCopiesBytes() {
+    byte[] value = "value1".getBytes();
+    KafkaHeader header = KafkaHeader.header("key1", value);
+    value[0] = 'V';
+
+    assertEquals("value1", header.value().toString());
+  }
+
+  @Test
+  public void testConsumerRecordHeaderLookup() {
+    RecordHeaders nativeHeaders = new RecordHeaders();
+    nativeHeaders.add("key1", "value1".getBytes());
+    nativeHeaders.add("key2", "value2".getBytes());
+    nativeHeaders.add("key1", "value3".getBytes());
+    KafkaConsumerRecord<String, String> record = new KafkaConsumerRecordImpl<>(new ConsumerRecord<>("mytopic", 0, 0L,
+      0L, TimestampType.NO_TIMESTAMP_TYPE, 0L, 0, 0, "mykey", "myvalue", nativeHeaders));
+
+    assertEquals("value3", record.lastHeader("key1").value().toString());
+    assertEquals("value2", record.lastHeader("key2").value().toString());
+    assertNull(record.lastHeader("key3"));
+
+    List<KafkaHeader> headers = record.headers("key1");
+    assertEquals(2, headers.size());
+    assertEquals("value1", headers.get(0).value().toString());
+    assertEquals("value3", headers.get(1).value().toString());
+    assertEquals(3, record.headers().size());
+  }
 }
@@ -16,15 +16,20 @@
 
 package io.vertx.kafka.client.tests;
 
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Context;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.common.KafkaClientOptions;
+import io.vertx.kafka.client.common.impl.VirtualThreads;
 import io.vertx.kafka.client.consumer.KafkaReadStream;
 import io.vertx.kafka.client.producer.KafkaProducer;
 import io.vertx.kafka.client.producer.KafkaProducerRecord;
 import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.serialization.BufferSerializer;
 
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.MockProducer;
@@ -33,18 +38,23 @@ import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests using mock producers
@@ -141,6 +151,155 @@ public class ProducerMockTest {
     assertFalse(producer.writeQueueFull());
   }
 
+  @Test
+  public void testConcurrentCompletionsDrainOnce(TestContext ctx) throws Exception {
+    TestProducer mock = new TestProducer();
+    KafkaWriteStream<String, String> producer = ProducerTest.producer(vertx, mock);
+    producer.setWriteQueueMaxSize(1000);
+    int sent = 0;
+    while (!producer.writeQueueFull()) {
+      producer.write(new ProducerRecord<>("the_topic", 0, 0L, "abc", "def"));
+      sent++;
+    }
+    AtomicInteger drains = new AtomicInteger();
+    AtomicInteger failures = new AtomicInteger();
+    Async drained = ctx.async();
+    producer.drainHandler(v -> {
+      ctx.assertTrue(Context.isOnEventLoopThread());
+      drains.incrementAndGet();
+      drained.complete();
+    });
+    Async failed = ctx.async(sent / 2);
+    producer.exceptionHandler(err -> {
+      ctx.assertTrue(Context.isOnEventLoopThread());
+      failures.incrementAndGet();
+      failed.countDown();
+    });
+    // the records are completed from several threads, alternating successes and failures
+    AtomicInteger next = new AtomicInteger();
+    int total = sent;
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread = new Thread(() -> {
+        int n;
+        while ((n = next.getAndIncrement()) < total) {
+          if (n % 2 == 0) {
+            mock.assertCompleteNext();
+          } else {
+            mock.assertErrorNext(new RuntimeException());
+          }
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    drained.awaitSuccess(10000);
+    failed.awaitSuccess(10000);
+    ctx.assertEquals(1, drains.get());
+    ctx.assertEquals(sent / 2, failures.get());
+    ctx.assertFalse(producer.writeQueueFull());
+  }
+
+  @Test
+  public void testDrainHandlerRacesLastCompletion(TestContext ctx) throws Exception {
+    for (int round = 0; round < 20; round++) {
+      TestProducer mock = new TestProducer();
+      KafkaWriteStream<String, String> producer = ProducerTest.producer(vertx, mock);
+      producer.setWriteQueueMaxSize(1000);
+      int sent = 0;
+      while (!producer.writeQueueFull()) {
+        producer.write(new ProducerRecord<>("the_topic", 0, 0L, "abc", "def"));
+        sent++;
+      }
+      int total = sent;
+      // the queue drains while the drain handler is set, like a pipe does after checking writeQueueFull
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < total; i++) {
+          mock.assertCompleteNext();
+        }
+      });
+      thread.start();
+      Async drained = ctx.async();
+      producer.drainHandler(v -> drained.complete());
+      thread.join();
+      drained.awaitSuccess(10000);
+    }
+  }
+
+  @Test
+  public void testWriteQueueSerializedSize(TestContext ctx) throws Exception {
+    MockProducer<String, Buffer> mock = new MockProducer<>(false, new StringSerializer(), new BufferSerializer());
+    KafkaWriteStream<String, Buffer> producer = KafkaWriteStream.create(vertx, mock);
+    producer.setWriteQueueMaxSize(1000);
+    producer.write(new ProducerRecord<>("the_topic", 0, "key", Buffer.buffer(new byte[600])));
+    assertFalse(producer.writeQueueFull());
+    producer.write(new ProducerRecord<>("the_topic", 0, "key", Buffer.buffer(new byte[600])));
+    assertTrue(producer.writeQueueFull());
+    Async async = ctx.async();
+    producer.drainHandler(v -> async.complete());
+    while (!mock.completeNext()) {
+      Thread.yield();
+    }
+    while (!mock.completeNext()) {
+      Thread.yield();
+    }
+  }
+
+  @Test
+  public void testSendBatch(TestContext ctx) throws Exception {
+    TestProducer mock = new TestProducer();
+    KafkaWriteStream<String, String> producer = ProducerTest.producer(vertx, mock);
+    producer.setWriteQueueMaxSize(10);
+    List<ProducerRecord<String, String>> records = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      records.add(new ProducerRecord<>("the_topic", 0, "abc", "def"));
+    }
+    RuntimeException cause = new RuntimeException();
+    Async async = ctx.async(2);
+    producer.drainHandler(v -> async.countDown());
+    CompositeFuture sent = producer.sendBatch(records);
+    sent.onComplete(ctx.asyncAssertFailure(err -> {
+      ctx.assertTrue(Context.isOnEventLoopThread());
+      ctx.assertTrue(sent.succeeded(0));
+      ctx.assertEquals(cause, sent.cause(1));
+      ctx.assertEquals(0, sent.<RecordMetadata>resultAt(2).partition());
+      async.countDown();
+    }));
+    ctx.assertTrue(producer.writeQueueFull());
+    mock.assertCompleteNext();
+    mock.assertErrorNext(cause);
+    // the batch is released as a whole
+    ctx.assertTrue(producer.writeQueueFull());
+    mock.assertCompleteNext();
+    ctx.assertFalse(producer.writeQueueFull());
+  }
+
+  @Test
+  public void testSendBatchWriteQueueFull(TestContext ctx) throws Exception {
+    TestProducer mock = new TestProducer();
+    KafkaWriteStream<String, String> producer = ProducerTest.producer(vertx, mock);
+    producer.setWriteQueueMaxSize(10);
+    producer.write(new ProducerRecord<>("the_topic", 0, "abcde", "fghij"));
+    ctx.assertTrue(producer.writeQueueFull());
+    List<ProducerRecord<String, String>> records = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      records.add(new ProducerRecord<>("the_topic", 0, "abc", "def"));
+    }
+    CompositeFuture sent = producer.sendBatch(records);
+    sent.onComplete(ctx.asyncAssertFailure(err -> {
+      for (int i = 0; i < records.size(); i++) {
+        ctx.assertTrue(sent.cause(i) instanceof IllegalStateException);
+      }
+      // none of the records is handed to the producer
+      mock.assertCompleteNext();
+      ctx.assertEquals(1, mock.history().size());
+      ctx.assertFalse(producer.writeQueueFull());
+    }));
+  }
+
   @Test
   public void testProducerError(TestContext ctx) throws Exception {
     TestProducer mock = new TestProducer();
@@ -155,6 +314,86 @@ public class ProducerMockTest {
     mock.assertErrorNext(cause);
   }
 
+  @Test
+  public void testSendDirectlyWhenMetadataKnown(TestContext ctx) throws Exception {
+    List<Thread> sendThreads = Collections.synchronizedList(new ArrayList<>());
+    MockProducer<String, String> mock = new MockProducer<String, String>(true, new StringSerializer(), new StringSerializer()) {
+      @Override
+      public synchronized Future<RecordMetadata> send(ProducerRecord<String, String> record, Callback callback) {
+        sendThreads.add(Thread.currentThread());
+        return super.send(record, callback);
+      }
+    };
+    KafkaWriteStream<String, String> producer = ProducerTest.producer(vertx, mock);
+    Async async = ctx.async();
+    vertx.runOnContext(v1 -> {
+      producer.send(new ProducerRecord<>("the_topic", 0, "key", "value-0"), ctx.asyncAssertSuccess(m1 -> {
+        ctx.assertNotEquals(Thread.currentThread(), sendThreads.get(0));
+        producer.send(new ProducerRecord<>("the_topic", 0, "key", "value-1"), ctx.asyncAssertSuccess(m2 -> {
+          // metadata is known, the record is sent from the event loop
+          ctx.assertEquals(Thread.currentThread(), sendThreads.get(1));
+          producer.send(new ProducerRecord<>("other_topic", 0, "key", "value-2"), ctx.asyncAssertSuccess(m3 -> {
+            ctx.assertNotEquals(Thread.currentThread(), sendThreads.get(2));
+            async.complete();
+          }));
+        }));
+      }));
+    });
+  }
+
+  @Test
+  public void testSendDoesNotOvertakeTransactionCalls(TestContext ctx) throws Exception {
+    List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    MockProducer<String, String> mock = new MockProducer<String, String>(true, new StringSerializer(), new StringSerializer()) {
+      @Override
+      public void beginTransaction() {
+        calls.add("begin");
+        super.beginTransaction();
+      }
+      @Override
+      public synchronized Future<RecordMetadata> send(ProducerRecord<String, String> record, Callback callback) {
+        calls.add(record.value());
+        return super.send(record, callback);
+      }
+    };
+    KafkaWriteStream<String, String> producer = ProducerTest.producer(vertx, mock);
+    Async async = ctx.async();
+    vertx.runOnContext(v1 -> {
+      producer.initTransactions()
+        .compose(v -> producer.beginTransaction())
+        .compose(v -> producer.send(new ProducerRecord<>("the_topic", 0, "key", "value-0")))
+        .compose(m -> producer.commitTransaction())
+        .compose(v -> {
+          // the metadata is known but the record must not be sent before the transaction begins
+          producer.beginTransaction();
+          return producer.send(new ProducerRecord<>("the_topic", 0, "key", "value-1"));
+        })
+        .onComplete(ctx.asyncAssertSuccess(m -> {
+          ctx.assertEquals(Arrays.asList("begin", "value-0", "begin", "value-1"), calls);
+          async.complete();
+        }));
+    });
+  }
+
+  @Test
+  public void testProducerVirtualThreads(TestContext ctx) throws Exception {
+    Assume.assumeTrue(VirtualThreads.isSupported());
+    int num = 10;
+    MockProducer<String, String> mock = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+    KafkaWriteStream<String, String> producer = KafkaWriteStream.create(vertx, mock, new KafkaClientOptions().setUseVirtualThreads(true));
+    Async async = ctx.async(num);
+    for (int i = 0; i < num; i++) {
+      producer.send(new ProducerRecord<>("the_topic", 0, "key-" + i, "value-" + i), ctx.asyncAssertSuccess(metadata -> {
+        ctx.assertTrue(Context.isOnEventLoopThread());
+        async.countDown();
+      }));
+    }
+    async.awaitSuccess(10000);
+    for (int i = 0; i < num; i++) {
+      ctx.assertEquals("value-" + i, mock.history().get(i).value());
+    }
+  }
+
 //  @Test
   public void testProducerConsumer(TestContext ctx) throws Exception {
 